@@ -0,0 +1,38 @@
+package com.thoughtworks.rslist.api;
+
+import com.thoughtworks.rslist.domain.Change;
+import com.thoughtworks.rslist.exception.Error;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.service.ChangeFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+
+@RestController
+public class ChangeController {
+  @Autowired ChangeFeed changeFeed;
+
+  /**
+   * Votes and trades with a sequence after {@code after}, oldest first. Waits for new changes
+   * when there are none yet and answers with an empty list if none arrive in time.
+   */
+  @GetMapping("/changes")
+  public DeferredResult<List<Change>> getChanges(
+      @RequestParam(defaultValue = "0") long after,
+      @RequestParam(required = false) Integer limit) {
+    return changeFeed.poll(after, limit);
+  }
+
+  @ExceptionHandler(RequestNotValidException.class)
+  public ResponseEntity<Error> handleRequestErrorHandler(RequestNotValidException e) {
+    Error error = new Error();
+    error.setError(e.getMessage());
+    return ResponseEntity.badRequest().body(error);
+  }
+}
@@ -0,0 +1,284 @@
+package com.thoughtworks.rslist.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtworks.rslist.domain.RankChange;
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Pushes leaderboard moves to {@code /rs/stream} subscribers. Changes reported by {@link
+ * RsEventRanking} are merged per event until the next {@code rs.stream.interval-ms} tick, then
+ * serialized once and queued for every subscriber as a {@code deltas} event. Each subscriber has
+ * a queue of {@code rs.stream.buffer-size} batches drained by a small sender pool; a subscriber
+ * that falls that far behind loses its queued batches and gets a {@code reset} event telling it
+ * to reload the list.
+ *
+ * <p>Sends block while the client's connection is full. A subscriber whose send has taken longer
+ * than {@code rs.stream.send-timeout-ms} is dropped at the next tick, and the pool gets one extra
+ * thread until that send returns, so stalled clients cannot starve the others.
+ */
+@Component
+public class RankChangeStream {
+  static final String DELTAS = "deltas";
+  static final String RESET = "reset";
+
+  private final ObjectMapper objectMapper;
+  private final Executor senders;
+  private final int bufferSize;
+  private final long timeoutMillis;
+  private final long sendTimeoutNanos;
+  private final LongSupplier clock;
+  private final Map<Integer, RankChange> pending = new LinkedHashMap<>();
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicLong resets = new AtomicLong();
+
+  @Autowired
+  public RankChangeStream(
+      RsEventRanking rsEventRanking,
+      ObjectMapper objectMapper,
+      @Value("${rs.stream.buffer-size:16}") int bufferSize,
+      @Value("${rs.stream.timeout-ms:1800000}") long timeoutMillis,
+      @Value("${rs.stream.send-timeout-ms:10000}") long sendTimeoutMillis,
+      @Value("${rs.stream.sender-threads:2}") int senderThreads) {
+    this(
+        rsEventRanking,
+        objectMapper,
+        Executors.newFixedThreadPool(senderThreads),
+        bufferSize,
+        timeoutMillis,
+        sendTimeoutMillis,
+        System::nanoTime);
+  }
+
+  RankChangeStream(
+      RsEventRanking rsEventRanking,
+      ObjectMapper objectMapper,
+      Executor senders,
+      int bufferSize,
+      long timeoutMillis,
+      long sendTimeoutMillis,
+      LongSupplier clock) {
+    this.objectMapper = objectMapper;
+    this.senders = senders;
+    this.bufferSize = bufferSize;
+    this.timeoutMillis = timeoutMillis;
+    this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+    this.clock = clock;
+    rsEventRanking.addChangeListener(this::add);
+  }
+
+  public SseEmitter subscribe() {
+    return subscribe(new SseEmitter(timeoutMillis));
+  }
+
+  SseEmitter subscribe(SseEmitter emitter) {
+    Subscriber subscriber = new Subscriber(emitter);
+    subscribers.add(subscriber);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    return emitter;
+  }
+
+  @Scheduled(fixedDelayString = "${rs.stream.interval-ms:500}")
+  public void publish() {
+    dropStalled();
+    List<RankChange> batch;
+    synchronized (pending) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      batch = new ArrayList<>(pending.values());
+      pending.clear();
+    }
+    Message message = new Message(sequence.incrementAndGet(), DELTAS, serialize(batch));
+    subscribers.forEach(subscriber -> subscriber.offer(message));
+  }
+
+  public int subscribers() {
+    return subscribers.size();
+  }
+
+  public long resets() {
+    return resets.get();
+  }
+
+  @PreDestroy
+  public void close() {
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    if (senders instanceof ExecutorService) {
+      ((ExecutorService) senders).shutdownNow();
+    }
+  }
+
+  private void dropStalled() {
+    long now = clock.getAsLong();
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.expireIfStalled(now)) {
+        subscribers.remove(subscriber);
+      }
+    }
+  }
+
+  /** Lends the pool a thread for each send stuck on a dropped subscriber. */
+  private synchronized void resizeSenders(int delta) {
+    if (!(senders instanceof ThreadPoolExecutor)) {
+      return;
+    }
+    ThreadPoolExecutor pool = (ThreadPoolExecutor) senders;
+    if (delta > 0) {
+      pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+      pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+    } else {
+      pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+      pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+    }
+  }
+
+  /** Keeps the first old rank and the latest new rank of each event within one interval. */
+  private void add(RankChange change) {
+    if (subscribers.isEmpty()) {
+      return;
+    }
+    synchronized (pending) {
+      pending.merge(
+          change.getRsEventId(),
+          change,
+          (first, latest) ->
+              RankChange.builder()
+                  .rsEventId(latest.getRsEventId())
+                  .oldRank(first.getOldRank())
+                  .newRank(latest.getNewRank())
+                  .voteNum(latest.getVoteNum())
+                  .build());
+    }
+  }
+
+  private String serialize(List<RankChange> batch) {
+    try {
+      return objectMapper.writeValueAsString(batch);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @AllArgsConstructor
+  private static class Message {
+    final long id;
+    final String name;
+    final String data;
+  }
+
+  private class Subscriber {
+    final SseEmitter emitter;
+    final BlockingQueue<Message> queue = new ArrayBlockingQueue<>(bufferSize);
+    final AtomicBoolean draining = new AtomicBoolean();
+    /** Guarded by this subscriber. */
+    boolean sending;
+    long sendingSince;
+    boolean expired;
+
+    Subscriber(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    void offer(Message message) {
+      if (!queue.offer(message)) {
+        queue.clear();
+        resets.incrementAndGet();
+        queue.offer(new Message(message.id, RESET, String.valueOf(message.id)));
+      }
+      if (draining.compareAndSet(false, true)) {
+        senders.execute(this::drain);
+      }
+    }
+
+    synchronized boolean expireIfStalled(long now) {
+      if (expired || !sending || now - sendingSince <= sendTimeoutNanos) {
+        return false;
+      }
+      expired = true;
+      queue.clear();
+      // the lent thread is returned when the send ends, so it must be added first
+      resizeSenders(1);
+      return true;
+    }
+
+    void drain() {
+      try {
+        for (Message message = queue.poll(); message != null; message = queue.poll()) {
+          if (!send(message)) {
+            return;
+          }
+        }
+      } catch (IOException | IllegalStateException e) {
+        subscribers.remove(this);
+        emitter.complete();
+        return;
+      } finally {
+        draining.set(false);
+      }
+      if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+        senders.execute(this::drain);
+      }
+    }
+
+    /** Returns false if the subscriber was dropped while the send was in flight. */
+    private boolean send(Message message) throws IOException {
+      synchronized (this) {
+        if (expired) {
+          return false;
+        }
+        sending = true;
+        sendingSince = clock.getAsLong();
+      }
+      boolean dropped;
+      try {
+        emitter.send(
+            SseEmitter.event()
+                .id(String.valueOf(message.id))
+                .name(message.name)
+                .data(message.data, MediaType.APPLICATION_JSON));
+      } finally {
+        synchronized (this) {
+          sending = false;
+          dropped = expired;
+        }
+        if (dropped) {
+          resizeSenders(-1);
+        }
+      }
+      if (dropped) {
+        emitter.complete();
+      }
+      return !dropped;
+    }
+  }
+}
@@ -3,19 +3,26 @@ package com.thoughtworks.rslist.api;
 import com.thoughtworks.rslist.domain.RsEvent;
 import com.thoughtworks.rslist.domain.Trade;
 import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteResult;
 import com.thoughtworks.rslist.dto.RsEventDto;
 import com.thoughtworks.rslist.dto.UserDto;
 import com.thoughtworks.rslist.exception.Error;
 import com.thoughtworks.rslist.exception.RequestNotValidException;
 import com.thoughtworks.rslist.repository.RsEventRepository;
 import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.service.EventListSnapshots;
 import com.thoughtworks.rslist.service.RsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -23,15 +30,82 @@ import java.util.stream.Collectors;
 @RestController
 @Validated
 public class RsController {
+  private static final MediaType JSON_UTF8 =
+      new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8);
+
   @Autowired RsEventRepository rsEventRepository;
   @Autowired UserRepository userRepository;
   @Autowired RsService rsService;
+  @Autowired EventListSnapshots eventListSnapshots;
+  @Autowired RankChangeStream rankChangeStream;
 
   @GetMapping("/rs/list")
-  public ResponseEntity<List<RsEvent>> getRsEventListBetween(
-      @RequestParam(required = false) Integer start, @RequestParam(required = false) Integer end) {
-    List<RsEvent> rsEvents = rsService.getEventList(start,end);
-    return ResponseEntity.ok(rsEvents);
+  public ResponseEntity<byte[]> getRsEventListBetween(
+      @RequestParam(required = false) Integer start,
+      @RequestParam(required = false) Integer end,
+      @RequestParam(required = false) String keyword,
+      @RequestParam(required = false) String mode,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+    String etag = eventListSnapshots.etag(mode);
+    if (etag != null && matches(ifNoneMatch, etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(gzip ? EventListSnapshots.gzipEtag(etag) : etag)
+          .build();
+    }
+    EventListSnapshots.Snapshot snapshot = eventListSnapshots.get(keyword, mode, start, end);
+    ResponseEntity.BodyBuilder response =
+        ResponseEntity.ok()
+            .contentType(JSON_UTF8)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (snapshot.getGzip() != null && gzip) {
+      return response
+          .eTag(EventListSnapshots.gzipEtag(snapshot.getEtag()))
+          .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+          .body(snapshot.getGzip());
+    }
+    if (snapshot.getEtag() != null) {
+      response.eTag(snapshot.getEtag());
+    }
+    return response.body(snapshot.getJson());
+  }
+
+  /** Either encoding's tag matches, since both bodies hold the same list. */
+  private static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    String gzipEtag = EventListSnapshots.gzipEtag(etag);
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag) || tag.equals(gzipEtag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @GetMapping(path = "/rs/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter stream() {
+    return rankChangeStream.subscribe();
+  }
+
+  @GetMapping("/rs/search")
+  public ResponseEntity<List<RsEvent>> search(
+      @RequestParam String q,
+      @RequestParam(required = false) Integer start,
+      @RequestParam(required = false) Integer end) {
+    return ResponseEntity.ok(rsService.search(q, start, end));
+  }
+
+  @GetMapping("/rs/suggest")
+  public ResponseEntity<List<RsEvent>> suggest(
+      @RequestParam String prefix, @RequestParam(required = false) Integer limit) {
+    return ResponseEntity.ok(rsService.suggest(prefix, limit));
   }
 
   @GetMapping("/rs/{index}")
@@ -52,6 +126,11 @@ public class RsController {
     return ResponseEntity.ok().build();
   }
 
+  @PostMapping("/rs/vote/batch")
+  public ResponseEntity<List<VoteResult>> voteBatch(@RequestBody List<Vote> votes) {
+    return ResponseEntity.ok(rsService.voteBatch(votes));
+  }
+
   @PostMapping("/rs/buy/{id}")
   public ResponseEntity buy(@PathVariable int id, @RequestBody Trade trade){
     rsService.buy(trade, id);
@@ -1,37 +1,47 @@
 package com.thoughtworks.rslist.api;
 
 import com.thoughtworks.rslist.domain.User;
-import com.thoughtworks.rslist.dto.UserDto;
-import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.exception.Error;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.service.RsService;
+import com.thoughtworks.rslist.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
+import java.util.List;
 
 @RestController
 public class UserController {
-  @Autowired UserRepository userRepository;
+  @Autowired UserService userService;
+  @Autowired RsService rsService;
 
   @PostMapping("/user")
   public void register(@RequestBody @Valid User user) {
-    UserDto userDto = new UserDto();
-    userDto.setGender(user.getGender());
-    userDto.setPhone(user.getPhone());
-    userDto.setVoteNum(user.getVoteNum());
-    userDto.setAge(user.getAge());
-    userDto.setEmail(user.getEmail());
-    userDto.setUserName(user.getUserName());
-    userRepository.save(userDto);
+    userService.register(user);
+  }
+
+  @PostMapping("/users/batch")
+  public void registerAll(@RequestBody List<User> users) {
+    userService.registerAll(users);
   }
 
   @DeleteMapping("/user/{id}")
   public ResponseEntity deleteUser(@PathVariable int id) {
-    userRepository.deleteById(id);
+    rsService.deleteUser(id);
     return ResponseEntity.ok().build();
   }
+
+  @ExceptionHandler(RequestNotValidException.class)
+  public ResponseEntity<Error> handleRequestErrorHandler(RequestNotValidException e) {
+    Error error = new Error();
+    error.setError(e.getMessage());
+    return ResponseEntity.badRequest().body(error);
+  }
 }
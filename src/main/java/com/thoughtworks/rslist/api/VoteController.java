@@ -1,11 +1,17 @@
 package com.thoughtworks.rslist.api;
 
 import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteCursor;
+import com.thoughtworks.rslist.domain.VoteRecord;
+import com.thoughtworks.rslist.exception.Error;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
 import com.thoughtworks.rslist.repository.VoteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -15,22 +21,67 @@ import java.util.stream.Collectors;
 
 @RestController
 public class VoteController {
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
   @Autowired VoteRepository voteRepository;
 
+  @Value("${rs.vote-record.page-size:5}")
+  int defaultPageSize;
+
+  @Value("${rs.vote-record.max-page-size:100}")
+  int maxPageSize;
+
+  /**
+   * Lists a user's votes on an event. With {@code pageIndex} this is the original offset paging;
+   * otherwise pages are read after the opaque {@code cursor} (oldest first) and the cursor for the
+   * next page, if there is one, is returned in the {@value #NEXT_CURSOR_HEADER} header.
+   */
   @GetMapping("/voteRecord")
   public ResponseEntity<List<Vote>> getVoteRecord(
-      @RequestParam int userId, @RequestParam int rsEventId, @RequestParam int pageIndex) {
-    Pageable pageable = PageRequest.of(pageIndex - 1, 5);
-    return ResponseEntity.ok(
-        voteRepository.findAllByUserIdAndRsEventId(userId, rsEventId, pageable).stream()
-            .map(
-                item ->
-                    Vote.builder()
-                        .voteNum(item.getNum())
-                        .userId(item.getUser().getId())
-                        .time(item.getLocalDateTime())
-                        .rsEventId(item.getRsEvent().getId())
-                        .build())
-            .collect(Collectors.toList()));
+      @RequestParam int userId,
+      @RequestParam int rsEventId,
+      @RequestParam(required = false) Integer pageIndex,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer pageSize) {
+    int size = pageSize == null ? defaultPageSize : pageSize;
+    if (size < 1 || size > maxPageSize) {
+      throw new RequestNotValidException("invalid page size");
+    }
+    if (pageIndex != null) {
+      Pageable pageable = PageRequest.of(pageIndex - 1, size);
+      return ResponseEntity.ok(
+          toVotes(voteRepository.findRecords(userId, rsEventId, pageable)));
+    }
+    Pageable firstPage = PageRequest.of(0, size + 1);
+    List<VoteRecord> found;
+    if (cursor == null) {
+      found = voteRepository.findFirstRecords(userId, rsEventId, firstPage);
+    } else {
+      VoteCursor after = VoteCursor.decode(cursor);
+      found =
+          after.getTime() == null
+              ? voteRepository.findRecordsAfterUntimed(
+                  userId, rsEventId, after.getId(), firstPage)
+              : voteRepository.findRecordsAfter(
+                  userId, rsEventId, after.getTime(), after.getId(), firstPage);
+    }
+    if (found.size() <= size) {
+      return ResponseEntity.ok(toVotes(found));
+    }
+    VoteRecord last = found.get(size - 1);
+    return ResponseEntity.ok()
+        .header(NEXT_CURSOR_HEADER, new VoteCursor(last.getTime(), last.getId()).encode())
+        .body(toVotes(found.subList(0, size)));
+  }
+
+  private static List<Vote> toVotes(List<VoteRecord> records) {
+    return records.stream().map(VoteRecord::toVote).collect(Collectors.toList());
+  }
+
+  @ExceptionHandler(RequestNotValidException.class)
+  public ResponseEntity<Error> handleRequestErrorHandler(RequestNotValidException e) {
+    Error error = new Error();
+    error.setError(e.getMessage());
+    return ResponseEntity.badRequest().body(error);
   }
 }
@@ -0,0 +1,23 @@
+package com.thoughtworks.rslist.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/** A vote or trade as published on the change feed; {@code amount} is votes or money. */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class Change {
+    private long seq;
+    private String type;
+    private int rsEventId;
+    private Integer userId;
+    private int amount;
+    private Integer tradeRank;
+    private LocalDateTime time;
+}
@@ -0,0 +1,18 @@
+package com.thoughtworks.rslist.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** An event moving on the leaderboard; a rank of 0 means it was not on / is no longer on it. */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RankChange {
+    private int rsEventId;
+    private int oldRank;
+    private int newRank;
+    private int voteNum;
+}
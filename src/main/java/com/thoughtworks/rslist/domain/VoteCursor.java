@@ -0,0 +1,38 @@
+package com.thoughtworks.rslist.domain;
+
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a vote record listing: the (time, id) of the last vote returned. Votes may have no
+ * time, which is encoded as an empty field. Clients only see the opaque encoded form.
+ */
+@Data
+@AllArgsConstructor
+public class VoteCursor {
+  private LocalDateTime time;
+  private int id;
+
+  public String encode() {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(
+            ((time == null ? "" : time.toString()) + "," + id).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static VoteCursor decode(String cursor) {
+    try {
+      String[] parts =
+          new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+      LocalDateTime time = parts[0].isEmpty() ? null : LocalDateTime.parse(parts[0]);
+      return new VoteCursor(time, Integer.parseInt(parts[1]));
+    } catch (RuntimeException e) {
+      throw new RequestNotValidException("invalid cursor");
+    }
+  }
+}
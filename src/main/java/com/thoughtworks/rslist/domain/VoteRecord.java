@@ -0,0 +1,21 @@
+package com.thoughtworks.rslist.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/** A row of GET /voteRecord, read with a constructor projection instead of a full VoteDto. */
+@Data
+@AllArgsConstructor
+public class VoteRecord {
+  private int id;
+  private int userId;
+  private int rsEventId;
+  private LocalDateTime time;
+  private int voteNum;
+
+  public Vote toVote() {
+    return Vote.builder().userId(userId).rsEventId(rsEventId).time(time).voteNum(voteNum).build();
+  }
+}
@@ -0,0 +1,17 @@
+package com.thoughtworks.rslist.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class VoteResult {
+    private int userId;
+    private int rsEventId;
+    private boolean success;
+    private String error;
+}
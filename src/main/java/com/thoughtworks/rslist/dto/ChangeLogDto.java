@@ -0,0 +1,37 @@
+package com.thoughtworks.rslist.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One row of the change feed. {@code seq} is its position in the feed and is what consumers page
+ * by; it stays null until the row has committed and been numbered. Events are referenced by plain
+ * id so the history outlives deleted rows.
+ */
+@Entity
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(
+    name = "change_log",
+    indexes = @Index(name = "idx_change_log_seq", columnList = "seq", unique = true))
+public class ChangeLogDto {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "change_log_seq")
+    @SequenceGenerator(name = "change_log_seq", sequenceName = "change_log_seq", allocationSize = 1)
+    private long id;
+
+    private Long seq;
+    private String type;
+    private int rsEventId;
+    private Integer userId;
+    private int amount;
+    private Integer tradeRank;
+    private LocalDateTime time;
+}
@@ -0,0 +1,22 @@
+package com.thoughtworks.rslist.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/** How far a vote journal has been written into the vote tables, as a byte position. */
+@Entity
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "journal_checkpoint")
+public class JournalCheckpointDto {
+    @Id private int id;
+    private long position;
+}
@@ -1,5 +1,6 @@
 package com.thoughtworks.rslist.dto;
 
+import com.thoughtworks.rslist.support.RsEventListener;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,16 +14,26 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "rsEvent")
+@Table(
+    name = "rsEvent",
+    indexes = {
+      @Index(name = "idx_rs_event_name", columnList = "eventName"),
+      @Index(name = "idx_rs_event_keyword", columnList = "keyword,tradeRank,voteNum")
+    })
+@EntityListeners(RsEventListener.class)
 public class RsEventDto {
-  @Id @GeneratedValue private int id;
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rs_event_seq")
+  @SequenceGenerator(name = "rs_event_seq", sequenceName = "rs_event_seq", allocationSize = 50)
+  private int id;
   private String eventName;
   private String keyword;
   private int voteNum;
   @Builder.Default
   private int tradeRank = 0;
+  @Version private int version;
   @ManyToOne private UserDto user;
 
-  @OneToMany(cascade = CascadeType.REMOVE, mappedBy = "rsEvent")
+  @OneToMany(mappedBy = "rsEvent")
   private List<TradeDto> tradeDtos;
 }
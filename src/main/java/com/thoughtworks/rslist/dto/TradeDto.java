@@ -18,7 +18,8 @@ import java.math.BigDecimal;
 @Table(name = "trade")
 public class TradeDto {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trade_seq")
+    @SequenceGenerator(name = "trade_seq", sequenceName = "trade_seq", allocationSize = 50)
     private int id;
 
     private int amount;
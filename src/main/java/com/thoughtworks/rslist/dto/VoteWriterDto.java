@@ -0,0 +1,23 @@
+package com.thoughtworks.rslist.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/** The instance allowed to buffer rs event vote counts, and until when. */
+@Entity
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "vote_writer")
+public class VoteWriterDto {
+    @Id private int id;
+    private String owner;
+    private long expiresAt;
+}
@@ -0,0 +1,331 @@
+package com.thoughtworks.rslist.ranking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix lookup over event names, ranked by voteNum. Names are kept in parallel arrays sorted
+ * case-insensitively, so a prefix is a contiguous range found by binary search and each event
+ * costs three array slots; the name strings are shared with {@link RankEntry}.
+ *
+ * <p>New events go to a small sorted pending list and removed ones are tombstoned; both are
+ * folded into the arrays once they grow past a threshold. Each block of {@value #BLOCK} slots
+ * records an upper bound of its votes, which lets a top-k query over a wide range skip blocks
+ * that cannot beat the current k-th result.
+ */
+class Autocomplete {
+  static final int BLOCK = 64;
+  static final int MAX_PENDING = 4096;
+  private static final int TOMBSTONE = Integer.MIN_VALUE;
+  private static final Comparator<String> NAME_ORDER = String.CASE_INSENSITIVE_ORDER;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private String[] names = new String[0];
+  private int[] ids = new int[0];
+  private int[] votes = new int[0];
+  private int[] blockMax = new int[0];
+  private int removed;
+  private final List<RankEntry> pending = new ArrayList<>();
+
+  void reset(Collection<RankEntry> all) {
+    lock.writeLock().lock();
+    try {
+      pending.clear();
+      List<RankEntry> sorted = new ArrayList<>(all.size());
+      for (RankEntry entry : all) {
+        if (entry.getEventName() != null) {
+          sorted.add(entry);
+        }
+      }
+      sorted.sort(Autocomplete::compare);
+      load(sorted);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Replaces {@code old} (may be null) with {@code entry}. */
+  void replace(RankEntry old, RankEntry entry) {
+    lock.writeLock().lock();
+    try {
+      if (old != null) {
+        removeLocked(old);
+      }
+      if (entry.getEventName() != null) {
+        int at = pendingIndex(entry.getEventName(), entry.getId());
+        pending.add(at < 0 ? -at - 1 : at, entry);
+        compactIfNeeded();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  void remove(RankEntry old) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(old);
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  void addVotes(String name, int id, int delta) {
+    if (name == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      int at = arrayIndex(name, id);
+      if (at >= 0) {
+        votes[at] += delta;
+        blockMax[at / BLOCK] = Math.max(blockMax[at / BLOCK], votes[at]);
+        return;
+      }
+      at = pendingIndex(name, id);
+      if (at >= 0) {
+        RankEntry entry = pending.get(at);
+        pending.set(at, entry.toBuilder().voteNum(entry.getVoteNum() + delta).build());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Ids of the {@code k} events with the most votes whose name starts with {@code prefix}. */
+  List<Integer> suggest(String prefix, int k) {
+    lock.readLock().lock();
+    try {
+      PriorityQueue<long[]> best = new PriorityQueue<>(Comparator.comparingLong(top -> top[0]));
+      int from = lowerBound(prefix);
+      int to = prefixEnd(prefix, from);
+      if (to - from <= 4 * BLOCK) {
+        scan(from, to, k, best);
+      } else {
+        scanBlocks(from, to, k, best);
+      }
+      for (RankEntry entry : pending) {
+        if (startsWith(entry.getEventName(), prefix)) {
+          offer(best, k, entry.getVoteNum(), entry.getId());
+        }
+      }
+      List<long[]> ordered = new ArrayList<>(best);
+      ordered.sort(Comparator.comparingLong((long[] top) -> top[0]).reversed());
+      List<Integer> result = new ArrayList<>(ordered.size());
+      for (long[] top : ordered) {
+        result.add((int) top[1]);
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  int size() {
+    lock.readLock().lock();
+    try {
+      return names.length - removed + pending.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Bytes held by the index arrays and the pending list. Names count as one reference each
+   * (4 bytes with compressed oops) because the strings are shared with {@link RankEntry}.
+   */
+  long indexBytes() {
+    lock.readLock().lock();
+    try {
+      return 4L * (names.length + ids.length + votes.length + blockMax.length + pending.size());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void scanBlocks(int from, int to, int k, PriorityQueue<long[]> best) {
+    int firstFull = (from + BLOCK - 1) / BLOCK;
+    int lastFull = to / BLOCK;
+    scan(from, Math.min(to, firstFull * BLOCK), k, best);
+    scan(Math.max(from, lastFull * BLOCK), to, k, best);
+    Integer[] blocks = new Integer[Math.max(0, lastFull - firstFull)];
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = firstFull + i;
+    }
+    Arrays.sort(blocks, Comparator.comparingInt((Integer block) -> blockMax[block]).reversed());
+    for (Integer block : blocks) {
+      if (best.size() == k && blockMax[block] < score(best.peek()[0])) {
+        break;
+      }
+      scan(block * BLOCK, (block + 1) * BLOCK, k, best);
+    }
+  }
+
+  private void scan(int from, int to, int k, PriorityQueue<long[]> best) {
+    for (int i = from; i < to; i++) {
+      if (votes[i] != TOMBSTONE) {
+        offer(best, k, votes[i], ids[i]);
+      }
+    }
+  }
+
+  /**
+   * Keeps the k best (votes desc, id asc) candidates; the heap head is the worst of them. The
+   * key packs votes in the high bits and the inverted id in the low bits so one long compares
+   * both.
+   */
+  private static void offer(PriorityQueue<long[]> best, int k, int voteNum, int id) {
+    long key = ((long) voteNum << 32) | (0xFFFFFFFFL & ~id);
+    if (best.size() < k) {
+      best.add(new long[] {key, id});
+    } else if (k > 0 && key > best.peek()[0]) {
+      best.poll();
+      best.add(new long[] {key, id});
+    }
+  }
+
+  private static int score(long key) {
+    return (int) (key >> 32);
+  }
+
+  private void removeLocked(RankEntry old) {
+    if (old.getEventName() == null) {
+      return;
+    }
+    int at = arrayIndex(old.getEventName(), old.getId());
+    if (at >= 0) {
+      votes[at] = TOMBSTONE;
+      removed++;
+      return;
+    }
+    at = pendingIndex(old.getEventName(), old.getId());
+    if (at >= 0) {
+      pending.remove(at);
+    }
+  }
+
+  private void compactIfNeeded() {
+    if (pending.size() <= MAX_PENDING && removed <= names.length / 4) {
+      return;
+    }
+    List<RankEntry> merged = new ArrayList<>(names.length - removed + pending.size());
+    int next = 0;
+    for (int i = 0; i < names.length; i++) {
+      if (votes[i] == TOMBSTONE) {
+        continue;
+      }
+      while (next < pending.size() && compare(pending.get(next), names[i], ids[i]) < 0) {
+        merged.add(pending.get(next++));
+      }
+      merged.add(RankEntry.builder().id(ids[i]).eventName(names[i]).voteNum(votes[i]).build());
+    }
+    merged.addAll(pending.subList(next, pending.size()));
+    pending.clear();
+    load(merged);
+  }
+
+  private void load(List<RankEntry> sorted) {
+    int size = sorted.size();
+    names = new String[size];
+    ids = new int[size];
+    votes = new int[size];
+    blockMax = new int[(size + BLOCK - 1) / BLOCK];
+    Arrays.fill(blockMax, Integer.MIN_VALUE);
+    removed = 0;
+    for (int i = 0; i < size; i++) {
+      RankEntry entry = sorted.get(i);
+      names[i] = entry.getEventName();
+      ids[i] = entry.getId();
+      votes[i] = entry.getVoteNum();
+      blockMax[i / BLOCK] = Math.max(blockMax[i / BLOCK], votes[i]);
+    }
+  }
+
+  private int arrayIndex(String name, int id) {
+    int low = 0;
+    int high = names.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int order = compare(names[mid], ids[mid], name, id);
+      if (order < 0) {
+        low = mid + 1;
+      } else if (order > 0) {
+        high = mid - 1;
+      } else {
+        return votes[mid] == TOMBSTONE ? -1 : mid;
+      }
+    }
+    return -1;
+  }
+
+  private int pendingIndex(String name, int id) {
+    int low = 0;
+    int high = pending.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int order = compare(pending.get(mid), name, id);
+      if (order < 0) {
+        low = mid + 1;
+      } else if (order > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /** First slot whose name is not below the prefix. */
+  private int lowerBound(String prefix) {
+    int low = 0;
+    int high = names.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (NAME_ORDER.compare(names[mid], prefix) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /** First slot at or after {@code from} whose name no longer starts with the prefix. */
+  private int prefixEnd(String prefix, int from) {
+    int low = from;
+    int high = names.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (startsWith(names[mid], prefix)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static boolean startsWith(String name, String prefix) {
+    return name.regionMatches(true, 0, prefix, 0, prefix.length());
+  }
+
+  private static int compare(RankEntry a, RankEntry b) {
+    return compare(a, b.getEventName(), b.getId());
+  }
+
+  private static int compare(RankEntry a, String name, int id) {
+    return compare(a.getEventName(), a.getId(), name, id);
+  }
+
+  private static int compare(String nameA, int idA, String nameB, int idB) {
+    int order = NAME_ORDER.compare(nameA, nameB);
+    return order != 0 ? order : Integer.compare(idA, idB);
+  }
+}
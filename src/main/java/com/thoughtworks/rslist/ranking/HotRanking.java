@@ -0,0 +1,268 @@
+package com.thoughtworks.rslist.ranking;
+
+import com.thoughtworks.rslist.domain.VoteRecord;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.repository.OffsetLimitRequest;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.support.RsEventObserver;
+import com.thoughtworks.rslist.support.TransactionHooks;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * "Hot" ordering: each vote counts {@code 2^(age / half-life)} less the older it is, with vote
+ * times rounded down to {@code rs.hot.bucket-ms}. Scores use forward decay, weighting a vote by
+ * {@code 2^((bucket - landmark) / half-life)} against a fixed landmark, so an event's score only
+ * changes when it is voted on and the relative order of untouched events never needs
+ * recomputing. When new weights grow too large the landmark moves forward and every score is
+ * scaled down once. Vote times are local to the system default zone, as they are stored, and
+ * times in the future count as now.
+ *
+ * <p>Built from the vote table on startup and kept current by {@link #addVotes} and {@link
+ * RsEventObserver}. Purchased ranks do not apply to this ordering.
+ */
+@Component
+public class HotRanking implements RsEventObserver {
+  static final int REBUILD_PAGE = 10000;
+  private static final double MAX_EXPONENT = 64;
+  private static final Comparator<Scored> ORDER =
+      Comparator.comparingDouble((Scored scored) -> scored.score)
+          .reversed()
+          .thenComparingInt(scored -> scored.entry.getId());
+
+  private final RsEventRepository rsEventRepository;
+  private final VoteRepository voteRepository;
+  private final long halfLifeMillis;
+  private final long bucketMillis;
+  private final LongSupplier clock;
+  private final LeaderboardVersion version;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Integer, Scored> byId = new HashMap<>();
+  private final TreeSet<Scored> byScore = new TreeSet<>(ORDER);
+  private long landmark;
+
+  @Autowired
+  public HotRanking(
+      RsEventRepository rsEventRepository,
+      VoteRepository voteRepository,
+      @Value("${rs.hot.half-life-ms:86400000}") long halfLifeMillis,
+      @Value("${rs.hot.bucket-ms:3600000}") long bucketMillis,
+      LeaderboardVersion version) {
+    this(
+        rsEventRepository,
+        voteRepository,
+        halfLifeMillis,
+        bucketMillis,
+        version,
+        System::currentTimeMillis);
+  }
+
+  HotRanking(
+      RsEventRepository rsEventRepository,
+      VoteRepository voteRepository,
+      long halfLifeMillis,
+      long bucketMillis,
+      LeaderboardVersion version,
+      LongSupplier clock) {
+    this.rsEventRepository = rsEventRepository;
+    this.voteRepository = voteRepository;
+    this.halfLifeMillis = halfLifeMillis;
+    this.bucketMillis = bucketMillis;
+    this.clock = clock;
+    this.version = version;
+    this.landmark = bucket(clock.getAsLong());
+  }
+
+  @PostConstruct
+  public void rebuild() {
+    List<RankEntry> all = rsEventRepository.findAllRankEntries();
+    lock.writeLock().lock();
+    try {
+      resetLocked();
+      all.forEach(entry -> insert(new Scored(entry, 0)));
+      int afterId = 0;
+      List<VoteRecord> page;
+      do {
+        page =
+            voteRepository.findRecordsAfterId(
+                afterId, new OffsetLimitRequest(0, REBUILD_PAGE, Sort.by("id")));
+        for (VoteRecord record : page) {
+          score(record.getRsEventId(), 0, record.getVoteNum(), record.getTime());
+          afterId = record.getId();
+        }
+      } while (page.size() == REBUILD_PAGE);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    version.bump();
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      resetLocked();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    version.bump();
+  }
+
+  @Override
+  public void put(RsEventDto rsEventDto) {
+    RankEntry entry = RankEntry.from(rsEventDto);
+    TransactionHooks.afterCommit(
+        () -> {
+          lock.writeLock().lock();
+          try {
+            Scored old = detach(entry.getId());
+            insert(new Scored(entry, old == null ? 0 : old.score));
+          } finally {
+            lock.writeLock().unlock();
+          }
+          version.bump();
+        });
+  }
+
+  /** For votes, which reach the event row through bulk statements. */
+  public void addVotes(int id, int delta, LocalDateTime time) {
+    TransactionHooks.afterCommit(
+        () -> {
+          lock.writeLock().lock();
+          try {
+            score(id, delta, delta, time);
+          } finally {
+            lock.writeLock().unlock();
+          }
+          version.bump();
+        });
+  }
+
+  @Override
+  public void remove(int id) {
+    TransactionHooks.afterCommit(
+        () -> {
+          lock.writeLock().lock();
+          try {
+            detach(id);
+          } finally {
+            lock.writeLock().unlock();
+          }
+          version.bump();
+        });
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return byId.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Positions {@code from..to} (1-based); walks the set, so cost grows with {@code to}. */
+  public List<RankEntry> slice(int from, int to) {
+    lock.readLock().lock();
+    try {
+      List<RankEntry> result = new ArrayList<>();
+      int position = 0;
+      for (Scored scored : byScore) {
+        if (++position > to) {
+          break;
+        }
+        if (position >= from) {
+          result.add(scored.entry);
+        }
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  double score(int id) {
+    lock.readLock().lock();
+    try {
+      Scored scored = byId.get(id);
+      return scored == null ? 0 : scored.score;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void score(int id, int voteDelta, int weightedVotes, LocalDateTime time) {
+    Scored old = byId.get(id);
+    if (old == null) {
+      return;
+    }
+    long now = clock.getAsLong();
+    long at =
+        time == null
+            ? now
+            : Math.min(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), now);
+    double exponent = (double) (bucket(at) - landmark) / halfLifeMillis;
+    if (exponent > MAX_EXPONENT) {
+      rebase(bucket(at));
+      exponent = 0;
+      old = byId.get(id);
+    }
+    detach(id);
+    RankEntry entry = old.entry.toBuilder().voteNum(old.entry.getVoteNum() + voteDelta).build();
+    insert(new Scored(entry, old.score + weightedVotes * Math.pow(2, exponent)));
+  }
+
+  private void rebase(long newLandmark) {
+    double factor = Math.pow(2, -(double) (newLandmark - landmark) / halfLifeMillis);
+    List<Scored> all = new ArrayList<>(byId.values());
+    byId.clear();
+    byScore.clear();
+    all.forEach(scored -> insert(new Scored(scored.entry, scored.score * factor)));
+    landmark = newLandmark;
+  }
+
+  private long bucket(long millis) {
+    return Math.floorDiv(millis, bucketMillis) * bucketMillis;
+  }
+
+  private void resetLocked() {
+    byId.clear();
+    byScore.clear();
+    landmark = bucket(clock.getAsLong());
+  }
+
+  private void insert(Scored scored) {
+    byId.put(scored.entry.getId(), scored);
+    byScore.add(scored);
+  }
+
+  private Scored detach(int id) {
+    Scored old = byId.remove(id);
+    if (old != null) {
+      byScore.remove(old);
+    }
+    return old;
+  }
+
+  @AllArgsConstructor
+  private static class Scored {
+    final RankEntry entry;
+    final double score;
+  }
+}
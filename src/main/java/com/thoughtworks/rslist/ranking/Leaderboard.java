@@ -0,0 +1,330 @@
+package com.thoughtworks.rslist.ranking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Merged leaderboard: events holding a purchased trade rank sit in that slot, every other slot is
+ * filled by the remaining events ordered by voteNum. Purchased ranks beyond the end of the list
+ * are appended in rank order. Positions are 1-based.
+ */
+public class Leaderboard {
+  private static final int SCAN_RATIO = 8;
+  private static final int SCAN_CHUNK = 1024;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Integer, RankEntry> entries = new HashMap<>();
+  private final RankTree byVotes = new RankTree();
+  private final TreeSet<RankEntry> byTradeRank =
+      new TreeSet<>(Comparator.comparingInt(RankEntry::getTradeRank).thenComparingInt(RankEntry::getId));
+
+  public void reset(Collection<RankEntry> all) {
+    lock.writeLock().lock();
+    try {
+      entries.clear();
+      byVotes.clear();
+      byTradeRank.clear();
+      all.forEach(this::insert);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Returns the entry it replaced, if any. */
+  public RankEntry put(RankEntry entry) {
+    lock.writeLock().lock();
+    try {
+      RankEntry old = detach(entry.getId());
+      insert(entry);
+      return old;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Returns the updated entry, or null if the id is unknown. */
+  public RankEntry addVotes(int id, int delta) {
+    lock.writeLock().lock();
+    try {
+      RankEntry old = detach(id);
+      if (old == null) {
+        return null;
+      }
+      RankEntry updated = old.toBuilder().voteNum(old.getVoteNum() + delta).build();
+      insert(updated);
+      return updated;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Returns the updated entry, or null if the id is unknown. */
+  public RankEntry setTradeRank(int id, int tradeRank) {
+    lock.writeLock().lock();
+    try {
+      RankEntry old = detach(id);
+      if (old == null) {
+        return null;
+      }
+      RankEntry updated = old.toBuilder().tradeRank(tradeRank).build();
+      insert(updated);
+      return updated;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Returns the removed entry, if any. */
+  public RankEntry remove(int id) {
+    lock.writeLock().lock();
+    try {
+      return detach(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the entries at positions {@code from..to} (1-based, inclusive), clamped to the size. */
+  public List<RankEntry> slice(int from, int to) {
+    lock.readLock().lock();
+    try {
+      return sliceLocked(from, to);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** The entries for the given ids, in the same order; unknown ids are skipped. */
+  public List<RankEntry> lookup(Collection<Integer> ids) {
+    lock.readLock().lock();
+    try {
+      List<RankEntry> found = new ArrayList<>(ids.size());
+      for (Integer id : ids) {
+        RankEntry entry = entries.get(id);
+        if (entry != null) {
+          found.add(entry);
+        }
+      }
+      return found;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** The 1-based position of the event, or 0 if it is not on the board. */
+  public int position(int id) {
+    lock.readLock().lock();
+    try {
+      RankEntry entry = entries.get(id);
+      if (entry == null) {
+        return 0;
+      }
+      int votedCount = byVotes.size();
+      int[] positions = new int[byTradeRank.size()];
+      int index = 0;
+      int previous = 0;
+      for (RankEntry traded : byTradeRank) {
+        previous = tradedPosition(traded, votedCount, index, previous);
+        if (traded.getId() == id) {
+          return previous;
+        }
+        positions[index++] = previous;
+      }
+      return votedPosition(byVotes.indexOf(entry.getVoteNum(), id), positions);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Orders the given ids by leaderboard position and returns matches {@code from..to} (1-based,
+   * inclusive). Small id sets are placed by looking up each position; sets covering a large part
+   * of the board are found by walking the board in order, which stops once the window is full.
+   */
+  public List<RankEntry> select(Collection<Integer> ids, int from, int to) {
+    lock.readLock().lock();
+    try {
+      if (from < 1 || from > to) {
+        return new ArrayList<>();
+      }
+      if ((long) ids.size() * SCAN_RATIO > entries.size()) {
+        return scan(ids instanceof Set ? (Set<Integer>) ids : new HashSet<>(ids), from, to);
+      }
+      return place(ids, from, to);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private List<RankEntry> sliceLocked(int from, int to) {
+    return merge(
+        byTradeRank,
+        byVotes.size(),
+        from,
+        Math.min(to, entries.size()),
+        (offset, limit) -> {
+          List<RankEntry> voted = new ArrayList<>();
+          byVotes.collect(offset, limit, voted);
+          return voted;
+        });
+  }
+
+  private List<RankEntry> scan(Set<Integer> ids, int from, int to) {
+    List<RankEntry> matches = new ArrayList<>();
+    for (int start = 1; start <= entries.size() && matches.size() < to; start += SCAN_CHUNK) {
+      for (RankEntry entry : sliceLocked(start, start + SCAN_CHUNK - 1)) {
+        if (ids.contains(entry.getId()) && matches.size() < to) {
+          matches.add(entry);
+        }
+      }
+    }
+    return window(matches, from, to);
+  }
+
+  private List<RankEntry> place(Collection<Integer> ids, int from, int to) {
+    int votedCount = byVotes.size();
+    Map<Integer, Integer> tradedPositions = new HashMap<>();
+    int[] positions = new int[byTradeRank.size()];
+    int index = 0;
+    int previous = 0;
+    for (RankEntry entry : byTradeRank) {
+      previous = tradedPosition(entry, votedCount, index, previous);
+      positions[index++] = previous;
+      tradedPositions.put(entry.getId(), previous);
+    }
+    Map<RankEntry, Integer> placed = new HashMap<>();
+    for (Integer id : ids) {
+      RankEntry entry = entries.get(id);
+      if (entry == null) {
+        continue;
+      }
+      Integer position = tradedPositions.get(id);
+      if (position == null) {
+        position = votedPosition(byVotes.indexOf(entry.getVoteNum(), id), positions);
+      }
+      placed.put(entry, position);
+    }
+    List<RankEntry> matches = new ArrayList<>(placed.keySet());
+    matches.sort(Comparator.comparingInt(placed::get));
+    return window(matches, from, to);
+  }
+
+  /** The voted entry at 0-based vote index {@code index} takes the next slot no trade holds. */
+  private static int votedPosition(int index, int[] tradedPositions) {
+    int position = index + 1;
+    for (int traded : tradedPositions) {
+      if (traded > position) {
+        break;
+      }
+      position++;
+    }
+    return position;
+  }
+
+  private static List<RankEntry> window(List<RankEntry> matches, int from, int to) {
+    if (from > matches.size()) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(matches.subList(from - 1, Math.min(to, matches.size())));
+  }
+
+  /** Reads {@code limit} entries starting at a 0-based offset into the vote ordering. */
+  public interface VotedPage {
+    List<RankEntry> fetch(int offset, int limit);
+  }
+
+  /**
+   * Lays the traded entries (ordered by trade rank) over the vote ordering and returns positions
+   * {@code from..to}. Only the voted entries that fall inside the window are fetched. If the page
+   * comes back shorter than {@code votedCount} implied, as when rows are deleted between separate
+   * database reads, the result stops at the first position it cannot fill.
+   */
+  public static List<RankEntry> merge(
+      Iterable<RankEntry> traded, int votedCount, int from, int to, VotedPage votedPage) {
+    List<RankEntry> result = new ArrayList<>();
+    if (from < 1 || from > to) {
+      return result;
+    }
+    Map<Integer, RankEntry> tradedInWindow = new HashMap<>();
+    int tradedBefore = 0;
+    int index = 0;
+    int previous = 0;
+    for (RankEntry entry : traded) {
+      int position = tradedPosition(entry, votedCount, index++, previous);
+      previous = position;
+      if (position < from) {
+        tradedBefore++;
+      } else if (position <= to) {
+        tradedInWindow.put(position, entry);
+      } else {
+        break;
+      }
+    }
+    int votedInWindow = to - from + 1 - tradedInWindow.size();
+    List<RankEntry> voted =
+        votedInWindow > 0
+            ? votedPage.fetch(from - 1 - tradedBefore, votedInWindow)
+            : new ArrayList<>();
+    int next = 0;
+    for (int position = from; position <= to; position++) {
+      RankEntry entry = tradedInWindow.get(position);
+      if (entry == null) {
+        if (next == voted.size()) {
+          break;
+        }
+        entry = voted.get(next++);
+      }
+      result.add(entry);
+    }
+    return result;
+  }
+
+  /**
+   * A purchased rank keeps its slot unless the voted events run out first, in which case it
+   * follows directly after the previous entry.
+   */
+  private static int tradedPosition(RankEntry traded, int votedCount, int index, int previous) {
+    int position = Math.max(traded.getTradeRank(), previous + 1);
+    return Math.min(position, votedCount + index + 1);
+  }
+
+  private void insert(RankEntry entry) {
+    entries.put(entry.getId(), entry);
+    if (entry.getTradeRank() != 0) {
+      byTradeRank.add(entry);
+    } else {
+      byVotes.insert(entry.getVoteNum(), entry.getId(), entry);
+    }
+  }
+
+  private RankEntry detach(int id) {
+    RankEntry old = entries.remove(id);
+    if (old == null) {
+      return null;
+    }
+    if (old.getTradeRank() != 0) {
+      byTradeRank.remove(old);
+    } else {
+      byVotes.remove(old.getVoteNum(), old.getId());
+    }
+    return old;
+  }
+}
@@ -0,0 +1,23 @@
+package com.thoughtworks.rslist.ranking;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts changes to the in-memory rankings. Every view bumps it after applying a change, never
+ * before, so anything read while the counter showed {@code v} already includes every change
+ * counted up to {@code v}.
+ */
+@Component
+public class LeaderboardVersion {
+  private final AtomicLong version = new AtomicLong();
+
+  public long current() {
+    return version.get();
+  }
+
+  public void bump() {
+    version.incrementAndGet();
+  }
+}
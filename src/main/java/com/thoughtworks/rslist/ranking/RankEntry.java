@@ -0,0 +1,29 @@
+package com.thoughtworks.rslist.ranking;
+
+import com.thoughtworks.rslist.dto.RsEventDto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder(toBuilder = true)
+@AllArgsConstructor
+public class RankEntry {
+  int id;
+  String eventName;
+  String keyword;
+  int voteNum;
+  int tradeRank;
+  int userId;
+
+  public static RankEntry from(RsEventDto rsEventDto) {
+    return RankEntry.builder()
+        .id(rsEventDto.getId())
+        .eventName(rsEventDto.getEventName())
+        .keyword(rsEventDto.getKeyword())
+        .voteNum(rsEventDto.getVoteNum())
+        .tradeRank(rsEventDto.getTradeRank())
+        .userId(rsEventDto.getUser() == null ? 0 : rsEventDto.getUser().getId())
+        .build();
+  }
+}
@@ -0,0 +1,168 @@
+package com.thoughtworks.rslist.ranking;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Order-statistics tree (a treap with subtree sizes) ordered by score descending, then id
+ * ascending. Gives O(log n) insert, remove, select-by-index and index-of, and O(log n + k) range
+ * reads. Not thread-safe; callers guard it.
+ */
+class RankTree {
+  private static final class Node {
+    final long score;
+    final int id;
+    final int priority;
+    final RankEntry value;
+    Node left;
+    Node right;
+    int size = 1;
+
+    Node(long score, int id, int priority, RankEntry value) {
+      this.score = score;
+      this.id = id;
+      this.priority = priority;
+      this.value = value;
+    }
+  }
+
+  private final Random random = new Random();
+  private Node root;
+
+  int size() {
+    return size(root);
+  }
+
+  void clear() {
+    root = null;
+  }
+
+  void insert(long score, int id, RankEntry value) {
+    Node[] parts = split(root, score, id);
+    root = merge(merge(parts[0], new Node(score, id, random.nextInt(), value)), parts[1]);
+  }
+
+  boolean remove(long score, int id) {
+    int before = size(root);
+    root = remove(root, score, id);
+    return size(root) < before;
+  }
+
+  /** Returns the entry at the given 0-based index. */
+  RankEntry select(int index) {
+    Node node = root;
+    while (node != null) {
+      int leftSize = size(node.left);
+      if (index < leftSize) {
+        node = node.left;
+      } else if (index == leftSize) {
+        return node.value;
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+    throw new IndexOutOfBoundsException();
+  }
+
+  /** Returns the number of entries ordered before the given key. */
+  int indexOf(long score, int id) {
+    int index = 0;
+    Node node = root;
+    while (node != null) {
+      if (compare(score, id, node) <= 0) {
+        node = node.left;
+      } else {
+        index += size(node.left) + 1;
+        node = node.right;
+      }
+    }
+    return index;
+  }
+
+  /** Appends up to {@code count} entries starting at the 0-based index {@code from}. */
+  void collect(int from, int count, List<RankEntry> out) {
+    collect(root, from, count, out);
+  }
+
+  private int collect(Node node, int skip, int limit, List<RankEntry> out) {
+    if (node == null || limit == 0) {
+      return limit;
+    }
+    int leftSize = size(node.left);
+    if (skip < leftSize) {
+      limit = collect(node.left, skip, limit, out);
+      if (limit == 0) {
+        return 0;
+      }
+    }
+    if (skip <= leftSize) {
+      out.add(node.value);
+      limit--;
+    }
+    return collect(node.right, Math.max(0, skip - leftSize - 1), limit, out);
+  }
+
+  private Node remove(Node node, long score, int id) {
+    if (node == null) {
+      return null;
+    }
+    int cmp = compare(score, id, node);
+    if (cmp < 0) {
+      node.left = remove(node.left, score, id);
+    } else if (cmp > 0) {
+      node.right = remove(node.right, score, id);
+    } else {
+      return merge(node.left, node.right);
+    }
+    update(node);
+    return node;
+  }
+
+  /** Splits into keys ordered before (score, id) and keys at or after it. */
+  private Node[] split(Node node, long score, int id) {
+    if (node == null) {
+      return new Node[] {null, null};
+    }
+    if (compare(score, id, node) <= 0) {
+      Node[] parts = split(node.left, score, id);
+      node.left = parts[1];
+      update(node);
+      return new Node[] {parts[0], node};
+    }
+    Node[] parts = split(node.right, score, id);
+    node.right = parts[0];
+    update(node);
+    return new Node[] {node, parts[1]};
+  }
+
+  private Node merge(Node left, Node right) {
+    if (left == null) {
+      return right;
+    }
+    if (right == null) {
+      return left;
+    }
+    if (left.priority > right.priority) {
+      left.right = merge(left.right, right);
+      update(left);
+      return left;
+    }
+    right.left = merge(left, right.left);
+    update(right);
+    return right;
+  }
+
+  private static int compare(long score, int id, Node node) {
+    int cmp = Long.compare(node.score, score);
+    return cmp != 0 ? cmp : Integer.compare(id, node.id);
+  }
+
+  private static int size(Node node) {
+    return node == null ? 0 : node.size;
+  }
+
+  private static void update(Node node) {
+    node.size = 1 + size(node.left) + size(node.right);
+  }
+}
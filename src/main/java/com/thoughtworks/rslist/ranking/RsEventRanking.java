@@ -0,0 +1,307 @@
+package com.thoughtworks.rslist.ranking;
+
+import com.thoughtworks.rslist.domain.RankChange;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.repository.OffsetLimitRequest;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.support.RsEventListener;
+import com.thoughtworks.rslist.support.RsEventObserver;
+import com.thoughtworks.rslist.support.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * The rs event leaderboard. By default it is an in-process copy rebuilt from the database on
+ * startup and kept up to date by {@link RsEventListener}, so list and rank reads never
+ * touch the database. With {@code rs.list.in-memory=false}, or while the copy is still being
+ * built, reads go to the database and fetch only the requested window.
+ *
+ * <p>Each keyword also gets its own {@link Leaderboard} partition, updated alongside the global
+ * one, so a keyword view is read without filtering the global board and writes to one keyword
+ * only lock that keyword's partition. Purchased ranks keep their slot within the keyword view.
+ */
+@Component
+public class RsEventRanking implements RsEventObserver {
+  private static final Sort VOTE_ORDER =
+      Sort.by(Sort.Order.desc("voteNum"), Sort.Order.asc("id"));
+  private static final Comparator<RankEntry> DATABASE_SEARCH_ORDER =
+      Comparator.comparing((RankEntry entry) -> entry.getTradeRank() == 0)
+          .thenComparingInt(RankEntry::getTradeRank)
+          .thenComparing(Comparator.comparingInt(RankEntry::getVoteNum).reversed())
+          .thenComparingInt(RankEntry::getId);
+
+  private final RsEventRepository rsEventRepository;
+  private final boolean inMemory;
+  private final LeaderboardVersion version;
+  private final Leaderboard leaderboard = new Leaderboard();
+  private final Autocomplete autocomplete = new Autocomplete();
+  private final ConcurrentMap<String, Leaderboard> byKeyword = new ConcurrentHashMap<>();
+  private final List<Consumer<RankChange>> changeListeners = new CopyOnWriteArrayList<>();
+  private volatile boolean ready;
+
+  public RsEventRanking(
+      RsEventRepository rsEventRepository,
+      @Value("${rs.list.in-memory:true}") boolean inMemory,
+      LeaderboardVersion version) {
+    this.rsEventRepository = rsEventRepository;
+    this.inMemory = inMemory;
+    this.version = version;
+  }
+
+  @PostConstruct
+  public void rebuild() {
+    if (!inMemory) {
+      return;
+    }
+    List<RankEntry> all = rsEventRepository.findAllRankEntries();
+    leaderboard.reset(all);
+    autocomplete.reset(all);
+    byKeyword.clear();
+    all.stream()
+        .filter(entry -> entry.getKeyword() != null)
+        .collect(Collectors.groupingBy(RankEntry::getKeyword))
+        .forEach(
+            (keyword, entries) -> {
+              Leaderboard partition = new Leaderboard();
+              partition.reset(entries);
+              byKeyword.put(keyword, partition);
+            });
+    ready = true;
+    version.bump();
+  }
+
+  public void clear() {
+    leaderboard.reset(Collections.emptyList());
+    autocomplete.reset(Collections.emptyList());
+    byKeyword.clear();
+    version.bump();
+  }
+
+  @Override
+  public void put(RsEventDto rsEventDto) {
+    if (!inMemory) {
+      return;
+    }
+    RankEntry entry = RankEntry.from(rsEventDto);
+    TransactionHooks.afterCommit(
+        () -> {
+          int oldRank = positionIfWatched(entry.getId());
+          apply(entry);
+          version.bump();
+          reportChange(entry.getId(), oldRank, entry.getVoteNum());
+        });
+  }
+
+  /** For changes made with bulk statements, which bypass {@link RsEventListener}. */
+  public void addVotes(int id, int delta) {
+    if (!inMemory) {
+      return;
+    }
+    TransactionHooks.afterCommit(
+        () -> {
+          int oldRank = positionIfWatched(id);
+          RankEntry updated = leaderboard.addVotes(id, delta);
+          if (updated != null) {
+            autocomplete.addVotes(updated.getEventName(), id, delta);
+            updatePartition(updated.getKeyword(), partition -> partition.addVotes(id, delta));
+            version.bump();
+            reportChange(id, oldRank, updated.getVoteNum());
+          }
+        });
+  }
+
+  /** For changes made with bulk statements, which bypass {@link RsEventListener}. */
+  public void setTradeRank(int id, int tradeRank) {
+    if (!inMemory) {
+      return;
+    }
+    TransactionHooks.afterCommit(
+        () -> {
+          int oldRank = positionIfWatched(id);
+          RankEntry updated = leaderboard.setTradeRank(id, tradeRank);
+          if (updated != null) {
+            updatePartition(
+                updated.getKeyword(), partition -> partition.setTradeRank(id, tradeRank));
+            version.bump();
+            reportChange(id, oldRank, updated.getVoteNum());
+          }
+        });
+  }
+
+  @Override
+  public void remove(int id) {
+    if (!inMemory) {
+      return;
+    }
+    TransactionHooks.afterCommit(
+        () -> {
+          int oldRank = positionIfWatched(id);
+          RankEntry old = leaderboard.remove(id);
+          if (old != null) {
+            autocomplete.remove(old);
+            updatePartition(old.getKeyword(), partition -> partition.remove(id));
+            version.bump();
+            reportChange(id, oldRank, old.getVoteNum());
+          }
+        });
+  }
+
+  /**
+   * Registers a listener told, after commit, how each changed event moved on the global board.
+   * Only the changed event is reported; events it passed shift by one implicitly.
+   */
+  public void addChangeListener(Consumer<RankChange> listener) {
+    changeListeners.add(listener);
+  }
+
+  /** Whether reads are served from the in-memory copy rather than the database. */
+  public boolean isReady() {
+    return ready;
+  }
+
+  public int size() {
+    if (!ready) {
+      return (int) rsEventRepository.count();
+    }
+    return leaderboard.size();
+  }
+
+  public RankEntry get(int position) {
+    List<RankEntry> slice = slice(position, position);
+    return slice.isEmpty() ? null : slice.get(0);
+  }
+
+  public List<RankEntry> slice(int from, int to) {
+    if (!ready) {
+      return sliceFromDatabase(from, to);
+    }
+    return leaderboard.slice(from, to);
+  }
+
+  /** Positions {@code from..to} of the leaderboard holding only events with this keyword. */
+  public List<RankEntry> slice(String keyword, int from, int to) {
+    if (!ready) {
+      return sliceFromDatabase(keyword, from, to);
+    }
+    Leaderboard partition = byKeyword.get(keyword);
+    return partition == null ? new ArrayList<>() : partition.slice(from, to);
+  }
+
+  /**
+   * Orders the given event ids by leaderboard position and returns matches {@code from..to}.
+   * Without the in-memory copy the matched rows are read by id and ordered traded-first, which
+   * only approximates the merged order.
+   */
+  public List<RankEntry> select(Collection<Integer> ids, int from, int to) {
+    if (ready) {
+      return leaderboard.select(ids, from, to);
+    }
+    if (ids.isEmpty() || from < 1 || from > to) {
+      return Collections.emptyList();
+    }
+    List<RankEntry> matches = rsEventRepository.findRankEntriesByIds(ids);
+    matches.sort(DATABASE_SEARCH_ORDER);
+    return from > matches.size()
+        ? Collections.emptyList()
+        : matches.subList(from - 1, Math.min(to, matches.size()));
+  }
+
+  /**
+   * The {@code limit} events with the most votes whose name starts with {@code prefix}, ignoring
+   * case. Without the in-memory copy this is a LIKE query, whose case sensitivity follows the
+   * column collation.
+   */
+  public List<RankEntry> suggest(String prefix, int limit) {
+    if (!ready) {
+      String pattern = prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+      return rsEventRepository.findRankEntriesByNamePrefix(
+          pattern, new OffsetLimitRequest(0, limit, VOTE_ORDER));
+    }
+    return leaderboard.lookup(autocomplete.suggest(prefix, limit));
+  }
+
+  private int positionIfWatched(int id) {
+    return changeListeners.isEmpty() ? 0 : leaderboard.position(id);
+  }
+
+  private void reportChange(int id, int oldRank, int voteNum) {
+    if (changeListeners.isEmpty()) {
+      return;
+    }
+    RankChange change =
+        RankChange.builder()
+            .rsEventId(id)
+            .oldRank(oldRank)
+            .newRank(leaderboard.position(id))
+            .voteNum(voteNum)
+            .build();
+    changeListeners.forEach(listener -> listener.accept(change));
+  }
+
+  private void apply(RankEntry entry) {
+    RankEntry old = leaderboard.put(entry);
+    autocomplete.replace(old, entry);
+    if (old != null && !Objects.equals(old.getKeyword(), entry.getKeyword())) {
+      updatePartition(old.getKeyword(), partition -> partition.remove(entry.getId()));
+    }
+    updatePartition(entry.getKeyword(), partition -> partition.put(entry));
+  }
+
+  /**
+   * Runs the update under the map's per-key lock so an emptied partition can be dropped without
+   * racing a concurrent insert into it.
+   */
+  private void updatePartition(String keyword, Consumer<Leaderboard> update) {
+    if (keyword == null) {
+      return;
+    }
+    byKeyword.compute(
+        keyword,
+        (key, partition) -> {
+          Leaderboard target = partition == null ? new Leaderboard() : partition;
+          update.accept(target);
+          return target.size() == 0 ? null : target;
+        });
+  }
+
+  /** Reads the traded events plus only the voted events that fall inside the window. */
+  private List<RankEntry> sliceFromDatabase(int from, int to) {
+    List<RankEntry> traded = rsEventRepository.findTradedRankEntries();
+    int votedCount = (int) rsEventRepository.countByTradeRank(0);
+    return Leaderboard.merge(
+        traded,
+        votedCount,
+        from,
+        Math.min(to, votedCount + traded.size()),
+        (offset, limit) ->
+            rsEventRepository.findVotedRankEntries(
+                new OffsetLimitRequest(offset, limit, VOTE_ORDER)));
+  }
+
+  private List<RankEntry> sliceFromDatabase(String keyword, int from, int to) {
+    List<RankEntry> traded = rsEventRepository.findTradedRankEntriesByKeyword(keyword);
+    int votedCount = (int) rsEventRepository.countByKeywordAndTradeRank(keyword, 0);
+    return Leaderboard.merge(
+        traded,
+        votedCount,
+        from,
+        Math.min(to, votedCount + traded.size()),
+        (offset, limit) ->
+            rsEventRepository.findVotedRankEntriesByKeyword(
+                keyword, new OffsetLimitRequest(offset, limit, VOTE_ORDER)));
+  }
+}
@@ -0,0 +1,13 @@
+package com.thoughtworks.rslist.repository;
+
+import com.thoughtworks.rslist.dto.ChangeLogDto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface ChangeLogRepository extends CrudRepository<ChangeLogDto, Long> {
+  List<ChangeLogDto> findBySeqGreaterThanOrderBySeqAsc(long seq, Pageable pageable);
+
+  List<ChangeLogDto> findBySeqIsNullOrderByIdAsc(Pageable pageable);
+}
@@ -0,0 +1,17 @@
+package com.thoughtworks.rslist.repository;
+
+import com.thoughtworks.rslist.dto.ChangeSeqDto;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+public interface ChangeSeqRepository extends CrudRepository<ChangeSeqDto, Integer> {
+  /** Reads the counter row for update, so relays on different instances number in turn. */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select s from ChangeSeqDto s where s.id = :id")
+  Optional<ChangeSeqDto> findLockedById(@Param("id") int id);
+}
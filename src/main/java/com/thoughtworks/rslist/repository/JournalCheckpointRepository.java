@@ -0,0 +1,6 @@
+package com.thoughtworks.rslist.repository;
+
+import com.thoughtworks.rslist.dto.JournalCheckpointDto;
+import org.springframework.data.repository.CrudRepository;
+
+public interface JournalCheckpointRepository extends CrudRepository<JournalCheckpointDto, Integer> {}
@@ -0,0 +1,62 @@
+package com.thoughtworks.rslist.repository;
+
+import lombok.EqualsAndHashCode;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/** A {@link Pageable} addressing rows by offset and limit rather than page number. */
+@EqualsAndHashCode
+public class OffsetLimitRequest implements Pageable {
+  private final long offset;
+  private final int limit;
+  private final Sort sort;
+
+  public OffsetLimitRequest(long offset, int limit, Sort sort) {
+    if (offset < 0 || limit < 1) {
+      throw new IllegalArgumentException("offset must not be negative and limit must be positive");
+    }
+    this.offset = offset;
+    this.limit = limit;
+    this.sort = sort;
+  }
+
+  @Override
+  public int getPageNumber() {
+    return (int) (offset / limit);
+  }
+
+  @Override
+  public int getPageSize() {
+    return limit;
+  }
+
+  @Override
+  public long getOffset() {
+    return offset;
+  }
+
+  @Override
+  public Sort getSort() {
+    return sort;
+  }
+
+  @Override
+  public Pageable next() {
+    return new OffsetLimitRequest(offset + limit, limit, sort);
+  }
+
+  @Override
+  public Pageable previousOrFirst() {
+    return hasPrevious() ? new OffsetLimitRequest(Math.max(0, offset - limit), limit, sort) : first();
+  }
+
+  @Override
+  public Pageable first() {
+    return new OffsetLimitRequest(0, limit, sort);
+  }
+
+  @Override
+  public boolean hasPrevious() {
+    return offset > 0;
+  }
+}
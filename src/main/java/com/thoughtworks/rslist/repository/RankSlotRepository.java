@@ -0,0 +1,39 @@
+package com.thoughtworks.rslist.repository;
+
+import com.thoughtworks.rslist.dto.RankSlotDto;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RankSlotRepository extends CrudRepository<RankSlotDto, Integer> {
+  @Override
+  List<RankSlotDto> findAll();
+
+  /**
+   * Takes the rank if {@code amount} beats the stored bid. The updated row stays locked until the
+   * surrounding transaction ends, so buyers of one rank are serialised across instances.
+   */
+  @Modifying
+  @Query(
+      "update RankSlotDto s set s.amount = :amount, s.rsEventId = :rsEventId "
+          + "where s.rank = :rank and s.amount < :amount")
+  int outbid(
+      @Param("rank") int rank, @Param("amount") int amount, @Param("rsEventId") int rsEventId);
+
+  /** Marks slots held by deleted events as unheld; the price to beat for the rank stays. */
+  @Modifying
+  @Query("update RankSlotDto s set s.rsEventId = 0 where s.rsEventId in :rsEventIds")
+  int releaseHolders(@Param("rsEventIds") Collection<Integer> rsEventIds);
+
+  /** Creates the slot for a rank nobody bought yet; a concurrent first buyer gets a key violation. */
+  @Modifying
+  @Query(
+      value = "insert into rank_slot (rank, amount, rs_event_id) values (:rank, :amount, :rsEventId)",
+      nativeQuery = true)
+  int insert(
+      @Param("rank") int rank, @Param("amount") int amount, @Param("rsEventId") int rsEventId);
+}
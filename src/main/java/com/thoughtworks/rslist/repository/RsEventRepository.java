@@ -1,16 +1,83 @@
 package com.thoughtworks.rslist.repository;
 
 import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.ranking.RankEntry;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface RsEventRepository extends CrudRepository<RsEventDto, Integer> {
+public interface RsEventRepository extends JpaRepository<RsEventDto, Integer> {
+  String RANK_ENTRY =
+      "select new com.thoughtworks.rslist.ranking.RankEntry("
+          + "e.id, e.eventName, e.keyword, e.voteNum, e.tradeRank, coalesce(e.user.id, 0))"
+          + " from RsEventDto e";
+
   List<RsEventDto> findAll(Sort sort);
   Optional<RsEventDto> findByTradeRank(int tradeRank);
+  List<RsEventDto> findByIdOrTradeRank(int id, int tradeRank);
+  long countByTradeRank(int tradeRank);
+
+  @Query(RANK_ENTRY)
+  List<RankEntry> findAllRankEntries();
+
+  @Query(RANK_ENTRY + " where e.id in :ids")
+  List<RankEntry> findRankEntriesByIds(@Param("ids") Collection<Integer> ids);
+
+  @Query(RANK_ENTRY + " where e.tradeRank > 0 order by e.tradeRank asc, e.id asc")
+  List<RankEntry> findTradedRankEntries();
+
+  /** Untraded events; the order comes from the pageable's sort. */
+  @Query(RANK_ENTRY + " where e.tradeRank = 0")
+  List<RankEntry> findVotedRankEntries(Pageable pageable);
+
+  @Query(RANK_ENTRY + " where e.keyword = :keyword and e.tradeRank > 0 order by e.tradeRank asc, e.id asc")
+  List<RankEntry> findTradedRankEntriesByKeyword(@Param("keyword") String keyword);
+
+  @Query(RANK_ENTRY + " where e.keyword = :keyword and e.tradeRank = 0")
+  List<RankEntry> findVotedRankEntriesByKeyword(@Param("keyword") String keyword, Pageable pageable);
+
+  long countByKeywordAndTradeRank(String keyword, int tradeRank);
+
+  /** {@code prefix} is a LIKE pattern using {@code !} as the escape character. */
+  @Query(RANK_ENTRY + " where e.eventName like :prefix escape '!'")
+  List<RankEntry> findRankEntriesByNamePrefix(@Param("prefix") String prefix, Pageable pageable);
+
+  @Query("select e.id from RsEventDto e where e.id in :ids")
+  List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+  @Modifying
+  @Query("update RsEventDto e set e.voteNum = e.voteNum + :num where e.id = :id")
+  int increaseVoteNum(@Param("id") int id, @Param("num") int num);
+
+  @Modifying
+  @Query(
+      "update RsEventDto e set e.tradeRank = :tradeRank, e.version = e.version + 1"
+          + " where e.id = :id and e.version = :version")
+  int updateTradeRank(
+      @Param("id") int id, @Param("tradeRank") int tradeRank, @Param("version") int version);
+
+  @Query("select e.id from RsEventDto e where e.user.id = :userId")
+  List<Integer> findIdsByUserId(@Param("userId") int userId);
+
+  @Modifying
+  @Query("delete from RsEventDto e where e.id = :id")
+  int deleteEvent(@Param("id") int id);
+
+  @Modifying
+  @Query("delete from RsEventDto e where e.user.id = :userId")
+  int deleteByUserId(@Param("userId") int userId);
+
+  @Modifying
+  @Query("delete from RsEventDto e where e.id = :id and e.version = :version")
+  int deleteByIdAndVersion(@Param("id") int id, @Param("version") int version);
 
   @Transactional
   void deleteAllByUserId(int userId);
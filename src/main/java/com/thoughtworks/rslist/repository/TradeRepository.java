@@ -1,7 +1,10 @@
 package com.thoughtworks.rslist.repository;
 
 import com.thoughtworks.rslist.dto.TradeDto;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -11,4 +14,13 @@ public interface TradeRepository extends CrudRepository<TradeDto,Integer> {
     List<TradeDto> findAll();
     @Transactional
     void deleteAllByRsEventId(int eventId);
+
+    @Modifying
+    @Query("delete from TradeDto t where t.rsEvent.id = :rsEventId")
+    int deleteByRsEventId(@Param("rsEventId") int rsEventId);
+
+    @Modifying
+    @Query("delete from TradeDto t where t.rsEvent.id in "
+            + "(select e.id from RsEventDto e where e.user.id = :userId)")
+    int deleteByEventUserId(@Param("userId") int userId);
 }
@@ -1,10 +1,25 @@
 package com.thoughtworks.rslist.repository;
 
 import com.thoughtworks.rslist.dto.UserDto;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
-public interface UserRepository extends CrudRepository<UserDto, Integer> {
+public interface UserRepository extends JpaRepository<UserDto, Integer> {
     List<UserDto> findAll();
+
+    @Query("select u.id from UserDto u where u.id in :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    @Modifying
+    @Query("update UserDto u set u.voteNum = u.voteNum - :num where u.id = :id and u.voteNum >= :num")
+    int decreaseVoteNum(@Param("id") int id, @Param("num") int num);
+
+    @Modifying
+    @Query("delete from UserDto u where u.id = :id")
+    int deleteUser(@Param("id") int id);
 }
@@ -0,0 +1,68 @@
+package com.thoughtworks.rslist.repository;
+
+import com.thoughtworks.rslist.domain.Vote;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Set-based vote statements sent as JDBC batches, one round trip per statement. Rows are updated
+ * in id order, so concurrent batches touching the same rows lock them in the same order and
+ * cannot deadlock each other.
+ */
+@Repository
+public class VoteBatchRepository {
+  private final JdbcTemplate jdbcTemplate;
+
+  public VoteBatchRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Spends each vote from its user's balance only where the balance covers it; a user's votes are
+   * spent in request order. The returned update count per vote, in request order, is 0 when it
+   * was rejected.
+   */
+  public int[] spendUserVotes(List<Vote> votes) {
+    List<Integer> order =
+        IntStream.range(0, votes.size())
+            .boxed()
+            .sorted(
+                Comparator.comparingInt((Integer i) -> votes.get(i).getUserId())
+                    .thenComparingInt(i -> i))
+            .collect(Collectors.toList());
+    int[] sorted =
+        jdbcTemplate.batchUpdate(
+            "update user set vote_num = vote_num - ? where id = ? and vote_num >= ?",
+            order.stream()
+                .map(votes::get)
+                .map(vote -> new Object[] {vote.getVoteNum(), vote.getUserId(), vote.getVoteNum()})
+                .collect(Collectors.toList()));
+    int[] spent = new int[votes.size()];
+    for (int k = 0; k < sorted.length; k++) {
+      spent[order.get(k)] = sorted[k];
+    }
+    return spent;
+  }
+
+  /** Sets every event's vote count to the sum of its vote records. */
+  public int recomputeEventVotes() {
+    return jdbcTemplate.update(
+        "update rs_event e set vote_num = "
+            + "(select coalesce(sum(v.num), 0) from vote v where v.rs_event_id = e.id)");
+  }
+
+  public void addEventVotes(Map<Integer, ? extends Number> deltaByEventId) {
+    jdbcTemplate.batchUpdate(
+        "update rs_event set vote_num = vote_num + ? where id = ?",
+        deltaByEventId.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(entry -> new Object[] {entry.getValue(), entry.getKey()})
+            .collect(Collectors.toList()));
+  }
+}
@@ -1,12 +1,73 @@
 package com.thoughtworks.rslist.repository;
 
+import com.thoughtworks.rslist.domain.VoteRecord;
 import com.thoughtworks.rslist.dto.VoteDto;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface VoteRepository extends PagingAndSortingRepository<VoteDto, Integer> {
+    String VOTE_RECORD =
+            "select new com.thoughtworks.rslist.domain.VoteRecord("
+                    + "v.id, v.user.id, v.rsEvent.id, v.localDateTime, v.num) from VoteDto v"
+                    + " where v.user.id = :userId and v.rsEvent.id = :rsEventId";
+
     List<VoteDto> findAll();
-    List<VoteDto> findAllByUserIdAndRsEventId(int userId, int rsEventId, Pageable pageable);
+
+    @Query(VOTE_RECORD)
+    List<VoteRecord> findRecords(
+            @Param("userId") int userId, @Param("rsEventId") int rsEventId, Pageable pageable);
+
+    /** Votes without a time come first, which is where MySQL sorts nulls in ascending order. */
+    @Query(VOTE_RECORD + " order by v.localDateTime asc, v.id asc")
+    List<VoteRecord> findFirstRecords(
+            @Param("userId") int userId, @Param("rsEventId") int rsEventId, Pageable pageable);
+
+    /** The page of votes strictly after (time, id); served from idx_vote_user_event_time. */
+    @Query(VOTE_RECORD
+            + " and (v.localDateTime > :time or (v.localDateTime = :time and v.id > :id))"
+            + " order by v.localDateTime asc, v.id asc")
+    List<VoteRecord> findRecordsAfter(
+            @Param("userId") int userId,
+            @Param("rsEventId") int rsEventId,
+            @Param("time") LocalDateTime time,
+            @Param("id") int id,
+            Pageable pageable);
+
+    /** The page of votes after a vote without a time: later untimed votes, then all timed ones. */
+    @Query(VOTE_RECORD
+            + " and (v.localDateTime is not null or v.id > :id)"
+            + " order by v.localDateTime asc, v.id asc")
+    List<VoteRecord> findRecordsAfterUntimed(
+            @Param("userId") int userId,
+            @Param("rsEventId") int rsEventId,
+            @Param("id") int id,
+            Pageable pageable);
+
+    /** Every vote, a page at a time in id order, for rebuilding in-memory views. */
+    @Query("select new com.thoughtworks.rslist.domain.VoteRecord("
+            + "v.id, v.user.id, v.rsEvent.id, v.localDateTime, v.num) from VoteDto v"
+            + " where v.id > :afterId")
+    List<VoteRecord> findRecordsAfterId(@Param("afterId") int afterId, Pageable pageable);
+
+    /** Votes the user cast on events posted by other users. */
+    @Query("select new com.thoughtworks.rslist.domain.VoteRecord("
+            + "v.id, v.user.id, v.rsEvent.id, v.localDateTime, v.num) from VoteDto v"
+            + " where v.user.id = :userId and v.rsEvent.user.id <> :userId")
+    List<VoteRecord> findRecordsOnOtherUsersEvents(@Param("userId") int userId);
+
+    @Modifying
+    @Query("delete from VoteDto v where v.rsEvent.id = :rsEventId")
+    int deleteByRsEventId(@Param("rsEventId") int rsEventId);
+
+    /** Votes cast by the user and votes cast on the user's events. */
+    @Modifying
+    @Query("delete from VoteDto v where v.user.id = :userId or v.rsEvent.id in "
+            + "(select e.id from RsEventDto e where e.user.id = :userId)")
+    int deleteByUserIdOrEventUserId(@Param("userId") int userId);
 }
@@ -0,0 +1,27 @@
+package com.thoughtworks.rslist.repository;
+
+import com.thoughtworks.rslist.dto.VoteWriterDto;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface VoteWriterRepository extends CrudRepository<VoteWriterDto, Integer> {
+  /** Takes or extends the lease unless another owner holds it past {@code now}. */
+  @Transactional
+  @Modifying
+  @Query(
+      "update VoteWriterDto w set w.owner = :owner, w.expiresAt = :expiresAt"
+          + " where w.id = :id and (w.owner = :owner or w.owner is null or w.expiresAt < :now)")
+  int claim(
+      @Param("id") int id,
+      @Param("owner") String owner,
+      @Param("now") long now,
+      @Param("expiresAt") long expiresAt);
+
+  @Transactional
+  @Modifying
+  @Query("update VoteWriterDto w set w.owner = null where w.id = :id and w.owner = :owner")
+  int release(@Param("id") int id, @Param("owner") String owner);
+}
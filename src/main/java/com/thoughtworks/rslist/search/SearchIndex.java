@@ -0,0 +1,141 @@
+package com.thoughtworks.rslist.search;
+
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.ranking.RankEntry;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.support.RsEventObserver;
+import com.thoughtworks.rslist.support.TransactionHooks;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over rs event names and keywords: each term maps to the ids of the events that
+ * contain it. Built from the database on startup and kept current through {@link
+ * RsEventObserver}. A query returns the ids containing every query term; ordering them is left
+ * to the leaderboard.
+ */
+@Component
+public class SearchIndex implements RsEventObserver {
+  private final RsEventRepository rsEventRepository;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, Set<Integer>> postings = new HashMap<>();
+  private final Map<Integer, Set<String>> termsById = new HashMap<>();
+
+  public SearchIndex(RsEventRepository rsEventRepository) {
+    this.rsEventRepository = rsEventRepository;
+  }
+
+  @PostConstruct
+  public void rebuild() {
+    List<RankEntry> all = rsEventRepository.findAllRankEntries();
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      termsById.clear();
+      all.forEach(entry -> index(entry.getId(), entry.getEventName(), entry.getKeyword()));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      termsById.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void put(RsEventDto rsEventDto) {
+    int id = rsEventDto.getId();
+    String eventName = rsEventDto.getEventName();
+    String keyword = rsEventDto.getKeyword();
+    TransactionHooks.afterCommit(
+        () -> {
+          lock.writeLock().lock();
+          try {
+            unindex(id);
+            index(id, eventName, keyword);
+          } finally {
+            lock.writeLock().unlock();
+          }
+        });
+  }
+
+  @Override
+  public void remove(int id) {
+    TransactionHooks.afterCommit(
+        () -> {
+          lock.writeLock().lock();
+          try {
+            unindex(id);
+          } finally {
+            lock.writeLock().unlock();
+          }
+        });
+  }
+
+  /** Ids of the events whose name or keyword contains every term of the query. */
+  public Set<Integer> search(String query) {
+    Set<String> terms = Tokenizer.queryTerms(query);
+    if (terms.isEmpty()) {
+      return Collections.emptySet();
+    }
+    lock.readLock().lock();
+    try {
+      List<Set<Integer>> matched = new ArrayList<>();
+      for (String term : terms) {
+        Set<Integer> ids = postings.get(term);
+        if (ids == null) {
+          return Collections.emptySet();
+        }
+        matched.add(ids);
+      }
+      matched.sort(Comparator.comparingInt(Set::size));
+      Set<Integer> result = new HashSet<>(matched.get(0));
+      for (int i = 1; i < matched.size() && !result.isEmpty(); i++) {
+        result.retainAll(matched.get(i));
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void index(int id, String eventName, String keyword) {
+    Set<String> terms = Tokenizer.indexTerms(eventName);
+    terms.addAll(Tokenizer.indexTerms(keyword));
+    termsById.put(id, terms);
+    for (String term : terms) {
+      postings.computeIfAbsent(term, key -> new HashSet<>()).add(id);
+    }
+  }
+
+  private void unindex(int id) {
+    Set<String> terms = termsById.remove(id);
+    if (terms == null) {
+      return;
+    }
+    for (String term : terms) {
+      Set<Integer> ids = postings.get(term);
+      ids.remove(id);
+      if (ids.isEmpty()) {
+        postings.remove(term);
+      }
+    }
+  }
+}
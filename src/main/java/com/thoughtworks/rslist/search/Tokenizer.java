@@ -0,0 +1,82 @@
+package com.thoughtworks.rslist.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits text into index terms. Runs of letters and digits become lower-cased words; CJK text,
+ * which has no spaces, becomes single characters plus overlapping character pairs, so both a
+ * one-character query and a phrase can be matched.
+ */
+final class Tokenizer {
+  private Tokenizer() {}
+
+  /** Terms to index for a document. */
+  static Set<String> indexTerms(String text) {
+    return tokenize(text, true);
+  }
+
+  /**
+   * Terms a query must match. CJK runs longer than one character use only their pairs, which
+   * are far more selective than single characters.
+   */
+  static Set<String> queryTerms(String text) {
+    return tokenize(text, false);
+  }
+
+  private static Set<String> tokenize(String text, boolean withUnigrams) {
+    Set<String> terms = new LinkedHashSet<>();
+    if (text == null) {
+      return terms;
+    }
+    String lower = text.toLowerCase(Locale.ROOT);
+    StringBuilder word = new StringBuilder();
+    StringBuilder cjk = new StringBuilder();
+    for (int i = 0; i < lower.length(); ) {
+      int codePoint = lower.codePointAt(i);
+      if (isCjk(codePoint)) {
+        flushWord(word, terms);
+        cjk.appendCodePoint(codePoint);
+      } else if (Character.isLetterOrDigit(codePoint)) {
+        flushCjk(cjk, terms, withUnigrams);
+        word.appendCodePoint(codePoint);
+      } else {
+        flushWord(word, terms);
+        flushCjk(cjk, terms, withUnigrams);
+      }
+      i += Character.charCount(codePoint);
+    }
+    flushWord(word, terms);
+    flushCjk(cjk, terms, withUnigrams);
+    return terms;
+  }
+
+  private static void flushWord(StringBuilder word, Set<String> terms) {
+    if (word.length() > 0) {
+      terms.add(word.toString());
+      word.setLength(0);
+    }
+  }
+
+  private static void flushCjk(StringBuilder run, Set<String> terms, boolean withUnigrams) {
+    int[] codePoints = run.codePoints().toArray();
+    if (codePoints.length == 1 || (withUnigrams && codePoints.length > 0)) {
+      for (int codePoint : codePoints) {
+        terms.add(new String(Character.toChars(codePoint)));
+      }
+    }
+    for (int i = 0; i + 1 < codePoints.length; i++) {
+      terms.add(new String(codePoints, i, 2));
+    }
+    run.setLength(0);
+  }
+
+  private static boolean isCjk(int codePoint) {
+    Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+    return script == Character.UnicodeScript.HAN
+        || script == Character.UnicodeScript.HIRAGANA
+        || script == Character.UnicodeScript.KATAKANA
+        || script == Character.UnicodeScript.HANGUL;
+  }
+}
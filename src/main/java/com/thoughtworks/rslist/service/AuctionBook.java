@@ -0,0 +1,79 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.repository.RankSlotRepository;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This instance's view of the winning bid per trade rank, kept in lazily allocated chunks of an
+ * {@link AtomicIntegerArray}. It is only a local lower bound: buyers are ordered by the {@code
+ * rank_slot} row lock shared by all instances, and the book just lets a bid that is already too
+ * low be rejected without touching the database. Rebuilt from {@code rank_slot} on startup and
+ * raised whenever this instance sees a newer bid.
+ */
+@Component
+public class AuctionBook {
+  static final int CHUNK_SIZE = 1024;
+  static final int MAX_CHUNKS = 1024;
+  public static final int MAX_RANK = CHUNK_SIZE * MAX_CHUNKS;
+
+  private final RankSlotRepository rankSlotRepository;
+  private final AtomicReferenceArray<AtomicIntegerArray> chunks =
+      new AtomicReferenceArray<>(MAX_CHUNKS);
+
+  public AuctionBook(RankSlotRepository rankSlotRepository) {
+    this.rankSlotRepository = rankSlotRepository;
+  }
+
+  @PostConstruct
+  public void rebuild() {
+    clear();
+    rankSlotRepository.findAll().forEach(slot -> raise(slot.getRank(), slot.getAmount()));
+  }
+
+  public void clear() {
+    for (int i = 0; i < MAX_CHUNKS; i++) {
+      chunks.set(i, null);
+    }
+  }
+
+  /** Returns the current winning amount for the rank, 0 if nobody bought it. */
+  public int amount(int rank) {
+    AtomicIntegerArray chunk = chunks.get(chunkIndex(rank));
+    return chunk == null ? 0 : chunk.get(slot(rank));
+  }
+
+  /** Raises the rank to at least {@code amount}. */
+  public void raise(int rank, int amount) {
+    AtomicIntegerArray chunk = chunk(rank);
+    int slot = slot(rank);
+    int current;
+    do {
+      current = chunk.get(slot);
+    } while (current < amount && !chunk.compareAndSet(slot, current, amount));
+  }
+
+  private AtomicIntegerArray chunk(int rank) {
+    int index = chunkIndex(rank);
+    AtomicIntegerArray chunk = chunks.get(index);
+    if (chunk == null) {
+      chunks.compareAndSet(index, null, new AtomicIntegerArray(CHUNK_SIZE));
+      chunk = chunks.get(index);
+    }
+    return chunk;
+  }
+
+  private static int chunkIndex(int rank) {
+    if (rank < 1 || rank > MAX_RANK) {
+      throw new IllegalArgumentException("rank out of range: " + rank);
+    }
+    return (rank - 1) / CHUNK_SIZE;
+  }
+
+  private static int slot(int rank) {
+    return (rank - 1) % CHUNK_SIZE;
+  }
+}
@@ -0,0 +1,260 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Change;
+import com.thoughtworks.rslist.domain.Trade;
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.ChangeLogDto;
+import com.thoughtworks.rslist.dto.ChangeSeqDto;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.repository.ChangeLogRepository;
+import com.thoughtworks.rslist.repository.ChangeSeqRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only feed of votes and trades. Rows are written to {@code change_log} in the same
+ * transaction as the vote or trade, so a consumer tailing it by sequence never sees a change that
+ * rolled back and never misses one that committed.
+ *
+ * <p>Writers insert rows without a sequence number and take no shared lock. Every {@code
+ * rs.changes.relay-ms} a relay numbers the committed rows that have none, in id order, from the
+ * {@code change_seq} counter row; relays on different instances take turns on that row. A row is
+ * only numbered once it is visible, i.e. committed, so readers paging by sequence see an unbroken
+ * prefix that never grows in the middle. An empty read is parked as a long poll and re-run when a
+ * relay here numbers rows, at least every {@code rs.changes.idle-recheck-ms} for rows numbered by
+ * other instances, or answered empty after {@code rs.changes.poll-timeout-ms}.
+ */
+@Component
+public class ChangeFeed {
+  public static final String VOTE = "vote";
+  public static final String TRADE = "trade";
+  static final int DEFAULT_LIMIT = 100;
+  static final int MAX_LIMIT = 1000;
+  static final int COUNTER = 1;
+  static final int RELAY_BATCH = 1000;
+
+  private final ChangeLogRepository changeLogRepository;
+  private final ChangeSeqRepository changeSeqRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final long pollTimeoutMillis;
+  private final long idleRecheckMillis;
+  private final LongSupplier clock;
+  private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+  private volatile boolean dirty;
+  private volatile long lastCheck;
+
+  @Autowired
+  public ChangeFeed(
+      ChangeLogRepository changeLogRepository,
+      ChangeSeqRepository changeSeqRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${rs.changes.poll-timeout-ms:30000}") long pollTimeoutMillis,
+      @Value("${rs.changes.idle-recheck-ms:1000}") long idleRecheckMillis) {
+    this(
+        changeLogRepository,
+        changeSeqRepository,
+        transactionManager,
+        pollTimeoutMillis,
+        idleRecheckMillis,
+        System::currentTimeMillis);
+  }
+
+  ChangeFeed(
+      ChangeLogRepository changeLogRepository,
+      ChangeSeqRepository changeSeqRepository,
+      PlatformTransactionManager transactionManager,
+      long pollTimeoutMillis,
+      long idleRecheckMillis,
+      LongSupplier clock) {
+    this.changeLogRepository = changeLogRepository;
+    this.changeSeqRepository = changeSeqRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.pollTimeoutMillis = pollTimeoutMillis;
+    this.idleRecheckMillis = idleRecheckMillis;
+    this.clock = clock;
+  }
+
+  /** Creates the counter row unless it exists, which another instance may be doing at once. */
+  @PostConstruct
+  public void seed() {
+    if (changeSeqRepository.existsById(COUNTER)) {
+      return;
+    }
+    try {
+      changeSeqRepository.save(ChangeSeqDto.builder().id(COUNTER).lastSeq(0).build());
+    } catch (DataIntegrityViolationException e) {
+      // seeded concurrently
+    }
+  }
+
+  /** Must run inside the transaction that records the votes. */
+  public void recordVotes(List<Vote> votes) {
+    List<ChangeLogDto> rows =
+        votes.stream()
+            .map(
+                vote ->
+                    ChangeLogDto.builder()
+                        .type(VOTE)
+                        .rsEventId(vote.getRsEventId())
+                        .userId(vote.getUserId())
+                        .amount(vote.getVoteNum())
+                        .time(vote.getTime())
+                        .build())
+            .collect(Collectors.toList());
+    changeLogRepository.saveAll(rows);
+  }
+
+  /** Must run inside the transaction that records the trade. */
+  public void recordTrade(Trade trade, int rsEventId) {
+    ChangeLogDto row =
+        ChangeLogDto.builder()
+            .type(TRADE)
+            .rsEventId(rsEventId)
+            .amount(trade.getAmount())
+            .tradeRank(trade.getRank())
+            .time(now())
+            .build();
+    changeLogRepository.save(row);
+  }
+
+  public void clear() {
+    changeLogRepository.deleteAll();
+    changeSeqRepository.save(ChangeSeqDto.builder().id(COUNTER).lastSeq(0).build());
+  }
+
+  /** Up to {@code limit} changes after sequence {@code after}, oldest first. */
+  public List<Change> read(long after, int limit) {
+    return changeLogRepository.findBySeqGreaterThanOrderBySeqAsc(after, PageRequest.of(0, limit))
+        .stream()
+        .map(ChangeFeed::toChange)
+        .collect(Collectors.toList());
+  }
+
+  public DeferredResult<List<Change>> poll(long after, Integer limit) {
+    int size = limit == null ? DEFAULT_LIMIT : limit;
+    if (after < 0) {
+      throw new RequestNotValidException("invalid after");
+    }
+    if (size < 1 || size > MAX_LIMIT) {
+      throw new RequestNotValidException("invalid limit");
+    }
+    DeferredResult<List<Change>> result =
+        new DeferredResult<>(pollTimeoutMillis, Collections.emptyList());
+    List<Change> changes = read(after, size);
+    if (!changes.isEmpty()) {
+      result.setResult(changes);
+      return result;
+    }
+    Waiter waiter = new Waiter(after, size, result);
+    waiters.add(waiter);
+    result.onCompletion(() -> waiters.remove(waiter));
+    return result;
+  }
+
+  /** Numbers committed rows that have no sequence yet; returns how many it numbered. */
+  @Scheduled(fixedDelayString = "${rs.changes.relay-ms:100}")
+  public int relay() {
+    int numbered = 0;
+    int page;
+    do {
+      page = transactionTemplate.execute(status -> number());
+      numbered += page;
+    } while (page == RELAY_BATCH);
+    if (numbered > 0) {
+      dirty = true;
+    }
+    return numbered;
+  }
+
+  /** Re-runs parked polls, reading once per distinct cursor. */
+  @Scheduled(fixedDelayString = "${rs.changes.recheck-ms:200}")
+  public void recheck() {
+    if (waiters.isEmpty()) {
+      return;
+    }
+    long now = clock.getAsLong();
+    if (!dirty && now - lastCheck < idleRecheckMillis) {
+      return;
+    }
+    dirty = false;
+    lastCheck = now;
+    Map<List<Long>, List<Change>> reads = new HashMap<>();
+    for (Waiter waiter : waiters) {
+      List<Change> changes =
+          reads.computeIfAbsent(
+              Arrays.asList(waiter.after, (long) waiter.limit),
+              key -> read(waiter.after, waiter.limit));
+      if (!changes.isEmpty()) {
+        waiter.result.setResult(changes);
+        waiters.remove(waiter);
+      }
+    }
+  }
+
+  int waiting() {
+    return waiters.size();
+  }
+
+  private LocalDateTime now() {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(clock.getAsLong()), ZoneId.systemDefault());
+  }
+
+  /** Must run in a transaction; the rows are read only once the counter row is locked. */
+  private int number() {
+    ChangeSeqDto counter =
+        changeSeqRepository
+            .findLockedById(COUNTER)
+            .orElseThrow(() -> new IllegalStateException("change_seq counter row is missing"));
+    List<ChangeLogDto> rows =
+        changeLogRepository.findBySeqIsNullOrderByIdAsc(PageRequest.of(0, RELAY_BATCH));
+    long next = counter.getLastSeq();
+    for (ChangeLogDto row : rows) {
+      row.setSeq(++next);
+    }
+    counter.setLastSeq(next);
+    changeLogRepository.saveAll(rows);
+    changeSeqRepository.save(counter);
+    return rows.size();
+  }
+
+  private static Change toChange(ChangeLogDto row) {
+    return Change.builder()
+        .seq(row.getSeq())
+        .type(row.getType())
+        .rsEventId(row.getRsEventId())
+        .userId(row.getUserId())
+        .amount(row.getAmount())
+        .tradeRank(row.getTradeRank())
+        .time(row.getTime())
+        .build();
+  }
+
+  @AllArgsConstructor
+  private static class Waiter {
+    final long after;
+    final int limit;
+    final DeferredResult<List<Change>> result;
+  }
+}
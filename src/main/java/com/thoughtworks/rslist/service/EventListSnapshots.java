@@ -0,0 +1,119 @@
+package com.thoughtworks.rslist.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtworks.rslist.ranking.LeaderboardVersion;
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import com.thoughtworks.rslist.support.BoundedCache;
+import com.thoughtworks.rslist.support.SingleFlight;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized {@code /rs/list} responses, plain and gzipped, cached per window and reused until
+ * {@link LeaderboardVersion} moves. The ETag is the version plus a per-process epoch, so a
+ * client can revalidate without the list being read at all; the gzipped body carries the same tag
+ * with a {@code -gz} suffix, as its bytes differ. Database-backed lists (see {@link
+ * RsEventRanking#isReady()}) may change on other instances and are neither cached nor tagged.
+ * Concurrent misses for the same window and version build the snapshot once.
+ */
+@Component
+public class EventListSnapshots {
+  private final RsService rsService;
+  private final RsEventRanking rsEventRanking;
+  private final LeaderboardVersion version;
+  private final ObjectMapper objectMapper;
+  private final BoundedCache<String, Snapshot> snapshots;
+  private final SingleFlight<String, Snapshot> builds = new SingleFlight<>();
+  private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+  public EventListSnapshots(
+      RsService rsService,
+      RsEventRanking rsEventRanking,
+      LeaderboardVersion version,
+      ObjectMapper objectMapper,
+      @Value("${rs.list.snapshot.max-size:256}") int maxSize,
+      @Value("${rs.list.snapshot.ttl-ms:60000}") long ttlMillis) {
+    this.rsService = rsService;
+    this.rsEventRanking = rsEventRanking;
+    this.version = version;
+    this.objectMapper = objectMapper;
+    this.snapshots = new BoundedCache<>(maxSize, ttlMillis);
+  }
+
+  /** The ETag the list would carry right now, or null if it is not cacheable. */
+  public String etag(String mode) {
+    return cacheable(mode) ? etag(version.current()) : null;
+  }
+
+  /** The tag of the gzipped body, told apart from {@code etag} by a {@code -gz} suffix. */
+  public static String gzipEtag(String etag) {
+    return etag.substring(0, etag.length() - 1) + "-gz\"";
+  }
+
+  public Snapshot get(String keyword, String mode, Integer start, Integer end) {
+    if (!cacheable(mode)) {
+      return new Snapshot(null, serialize(keyword, mode, start, end), null);
+    }
+    long current = version.current();
+    String key = mode + "|" + keyword + "|" + start + "|" + end;
+    Snapshot cached = snapshots.get(key);
+    if (cached != null && cached.etag.equals(etag(current))) {
+      return cached;
+    }
+    return builds.execute(
+        key + "@" + current,
+        () -> {
+          byte[] json = serialize(keyword, mode, start, end);
+          Snapshot snapshot = new Snapshot(etag(current), json, gzip(json));
+          snapshots.put(key, snapshot);
+          return snapshot;
+        });
+  }
+
+  BoundedCache<String, Snapshot> snapshots() {
+    return snapshots;
+  }
+
+  private boolean cacheable(String mode) {
+    return RsService.MODE_HOT.equals(mode) || rsEventRanking.isReady();
+  }
+
+  private String etag(long current) {
+    return "\"" + epoch + "-" + current + "\"";
+  }
+
+  private byte[] serialize(String keyword, String mode, Integer start, Integer end) {
+    try {
+      return objectMapper.writeValueAsBytes(rsService.getEventList(keyword, mode, start, end));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] gzip(byte[] json) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(json);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  /** A serialized list; {@code etag} and {@code gzip} are null when it was not cached. */
+  @Getter
+  @AllArgsConstructor
+  public static class Snapshot {
+    private final String etag;
+    private final byte[] json;
+    private final byte[] gzip;
+  }
+}
@@ -0,0 +1,117 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.support.BoundedCache;
+import com.thoughtworks.rslist.support.TransactionHooks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Remembers which user and rs event ids exist, so write paths can check their references
+ * without a primary-key read each. Only positive answers are cached: creating a row needs no
+ * invalidation, and the delete paths in {@link RsService} evict the ids they remove both
+ * immediately and after commit. Entries also expire after {@code rs.cache.ttl-ms}, which bounds
+ * staleness for deletes made by other instances.
+ */
+@Component
+public class LookupCache {
+  private final UserRepository userRepository;
+  private final RsEventRepository rsEventRepository;
+  private final BoundedCache<Integer, Boolean> users;
+  private final BoundedCache<Integer, Boolean> rsEvents;
+
+  public LookupCache(
+      UserRepository userRepository,
+      RsEventRepository rsEventRepository,
+      @Value("${rs.cache.max-size:10000}") int maxSize,
+      @Value("${rs.cache.ttl-ms:60000}") long ttlMillis) {
+    this.userRepository = userRepository;
+    this.rsEventRepository = rsEventRepository;
+    this.users = new BoundedCache<>(maxSize, ttlMillis);
+    this.rsEvents = new BoundedCache<>(maxSize, ttlMillis);
+  }
+
+  public boolean userExists(int id) {
+    return exists(users, id, userRepository::existsById);
+  }
+
+  public boolean rsEventExists(int id) {
+    return exists(rsEvents, id, rsEventRepository::existsById);
+  }
+
+  /** The subset of {@code ids} that exist, querying only the ids not already cached. */
+  public Set<Integer> existingUserIds(Collection<Integer> ids) {
+    return existing(users, ids, userRepository::findExistingIds);
+  }
+
+  public Set<Integer> existingRsEventIds(Collection<Integer> ids) {
+    return existing(rsEvents, ids, rsEventRepository::findExistingIds);
+  }
+
+  public void evictUser(int id) {
+    evict(users, id);
+  }
+
+  public void evictRsEvent(int id) {
+    evict(rsEvents, id);
+  }
+
+  public void clear() {
+    users.clear();
+    rsEvents.clear();
+  }
+
+  public BoundedCache<Integer, Boolean> users() {
+    return users;
+  }
+
+  public BoundedCache<Integer, Boolean> rsEvents() {
+    return rsEvents;
+  }
+
+  private static boolean exists(
+      BoundedCache<Integer, Boolean> cache, int id, Function<Integer, Boolean> load) {
+    if (cache.get(id) != null) {
+      return true;
+    }
+    boolean exists = load.apply(id);
+    if (exists) {
+      cache.put(id, true);
+    }
+    return exists;
+  }
+
+  private static Set<Integer> existing(
+      BoundedCache<Integer, Boolean> cache,
+      Collection<Integer> ids,
+      Function<Collection<Integer>, List<Integer>> load) {
+    Set<Integer> found = new HashSet<>();
+    Set<Integer> missing = new HashSet<>();
+    for (Integer id : ids) {
+      if (cache.get(id) != null) {
+        found.add(id);
+      } else {
+        missing.add(id);
+      }
+    }
+    if (!missing.isEmpty()) {
+      for (Integer id : load.apply(missing)) {
+        cache.put(id, true);
+        found.add(id);
+      }
+    }
+    return found;
+  }
+
+  private static void evict(BoundedCache<Integer, Boolean> cache, int id) {
+    cache.invalidate(id);
+    TransactionHooks.afterCommit(() -> cache.invalidate(id));
+  }
+}
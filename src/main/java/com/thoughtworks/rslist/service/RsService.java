@@ -4,99 +4,369 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thoughtworks.rslist.domain.RsEvent;
 import com.thoughtworks.rslist.domain.Trade;
 import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteRecord;
+import com.thoughtworks.rslist.domain.VoteResult;
+import com.thoughtworks.rslist.dto.RankSlotDto;
 import com.thoughtworks.rslist.dto.RsEventDto;
 import com.thoughtworks.rslist.dto.TradeDto;
-import com.thoughtworks.rslist.dto.UserDto;
 import com.thoughtworks.rslist.dto.VoteDto;
 import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.ranking.HotRanking;
+import com.thoughtworks.rslist.ranking.RankEntry;
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import com.thoughtworks.rslist.repository.RankSlotRepository;
 import com.thoughtworks.rslist.repository.RsEventRepository;
 import com.thoughtworks.rslist.repository.TradeRepository;
 import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteBatchRepository;
 import com.thoughtworks.rslist.repository.VoteRepository;
-import org.springframework.data.domain.Sort;
+import com.thoughtworks.rslist.search.SearchIndex;
+import com.thoughtworks.rslist.support.RsEventListener;
+import com.thoughtworks.rslist.support.SingleFlight;
+import com.thoughtworks.rslist.support.TransactionHooks;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 @Service
 public class RsService {
+  static final int MAX_VOTE_BATCH = 1000;
+  static final int MAX_BUY_ATTEMPTS = 10;
+  static final int MAX_SEARCH_WINDOW = 100;
+  static final int DEFAULT_SEARCH_WINDOW = 20;
+  static final int MAX_SUGGESTIONS = 50;
+  static final int DEFAULT_SUGGESTIONS = 10;
+  static final String MODE_VOTES = "votes";
+  static final String MODE_HOT = "hot";
+
   final RsEventRepository rsEventRepository;
   final UserRepository userRepository;
   final VoteRepository voteRepository;
   final TradeRepository tradeRepository;
-  public List<Integer> tradeAmountForRank = new ArrayList<>();
-  public RsService(RsEventRepository rsEventRepository, UserRepository userRepository, VoteRepository voteRepository, TradeRepository tradeRepository) {
+  final RsEventRanking rsEventRanking;
+  final VoteAggregator voteAggregator;
+  final VoteJournal voteJournal;
+  final VoteGroupCommitter voteGroupCommitter;
+  final VoteShards voteShards;
+  final VoteBatchRepository voteBatchRepository;
+  final AuctionBook auctionBook;
+  final RankSlotRepository rankSlotRepository;
+  final LookupCache lookupCache;
+  final RsEventListener rsEventListener;
+  final SearchIndex searchIndex;
+  final HotRanking hotRanking;
+  final ChangeFeed changeFeed;
+  final TransactionTemplate transactionTemplate;
+  final SingleFlight<List<Object>, List<RsEvent>> listReads = new SingleFlight<>();
+  final SingleFlight<Integer, RsEvent> indexReads = new SingleFlight<>();
+  public RsService(RsEventRepository rsEventRepository, UserRepository userRepository, VoteRepository voteRepository, TradeRepository tradeRepository, RsEventRanking rsEventRanking, Optional<VoteAggregator> voteAggregator, Optional<VoteJournal> voteJournal, Optional<VoteGroupCommitter> voteGroupCommitter, Optional<VoteShards> voteShards, VoteBatchRepository voteBatchRepository, AuctionBook auctionBook, RankSlotRepository rankSlotRepository, LookupCache lookupCache, RsEventListener rsEventListener, SearchIndex searchIndex, HotRanking hotRanking, ChangeFeed changeFeed, PlatformTransactionManager transactionManager) {
     this.rsEventRepository = rsEventRepository;
     this.userRepository = userRepository;
     this.voteRepository = voteRepository;
     this.tradeRepository = tradeRepository;
+    this.rsEventRanking = rsEventRanking;
+    this.voteAggregator = voteAggregator.orElse(null);
+    this.voteJournal = voteJournal.orElse(null);
+    this.voteGroupCommitter = voteGroupCommitter.orElse(null);
+    this.voteShards = voteShards.orElse(null);
+    this.voteBatchRepository = voteBatchRepository;
+    this.auctionBook = auctionBook;
+    this.rankSlotRepository = rankSlotRepository;
+    this.lookupCache = lookupCache;
+    this.rsEventListener = rsEventListener;
+    this.searchIndex = searchIndex;
+    this.hotRanking = hotRanking;
+    this.changeFeed = changeFeed;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
   }
 
 
   public void init() {
+    changeFeed.clear();
     tradeRepository.deleteAll();
+    rankSlotRepository.deleteAll();
     voteRepository.deleteAll();
     rsEventRepository.deleteAll();
     userRepository.deleteAll();
-    tradeAmountForRank.clear();
-    tradeAmountForRank.add(0);
+    rsEventRanking.clear();
+    if (voteAggregator != null) {
+      voteAggregator.clear();
+    }
+    if (voteJournal != null) {
+      voteJournal.clear();
+    }
+    if (voteShards != null) {
+      voteShards.clear();
+    }
+    auctionBook.clear();
+    lookupCache.clear();
+    searchIndex.clear();
+    hotRanking.clear();
   }
 
+  /**
+   * Spends the user's votes and credits the event with conditional updates, so concurrent votes
+   * can neither lose increments nor overdraw the user's balance. In write-behind mode the event
+   * increment is buffered by {@link VoteAggregator} instead, and in sharded mode it is handed to
+   * the {@link VoteShards} thread owning the event after commit; in journal mode the vote is only
+   * appended to the {@link VoteJournal} and no transaction is opened. With group commit enabled
+   * the vote shares a transaction with the votes arriving alongside it.
+   */
   public void vote(Vote vote, int rsEventId) {
-    Optional<RsEventDto> rsEventDto = rsEventRepository.findById(rsEventId);
-    Optional<UserDto> userDto = userRepository.findById(vote.getUserId());
-    if (!rsEventDto.isPresent()
-        || !userDto.isPresent()
-        || vote.getVoteNum() > userDto.get().getVoteNum()) {
-      throw new RuntimeException();
+    if (vote.getVoteNum() < 1) {
+      throw new RequestNotValidException("invalid vote num");
+    }
+    Vote forEvent =
+        Vote.builder()
+            .userId(vote.getUserId())
+            .rsEventId(rsEventId)
+            .time(vote.getTime())
+            .voteNum(vote.getVoteNum())
+            .build();
+    if (voteJournal != null) {
+      voteJournal.append(forEvent);
+      return;
+    }
+    if (voteGroupCommitter != null) {
+      VoteResult result = voteGroupCommitter.submit(forEvent);
+      if (!result.isSuccess()) {
+        // a missing user is reported like an overspent balance, as on the single-vote path
+        throw new RequestNotValidException(
+            "invalid userId".equals(result.getError()) ? "invalid vote" : result.getError());
+      }
+      return;
+    }
+    transactionTemplate.execute(
+        status -> {
+          applyVote(forEvent, rsEventId);
+          return null;
+        });
+  }
+
+  private void applyVote(Vote vote, int rsEventId) {
+    if (userRepository.decreaseVoteNum(vote.getUserId(), vote.getVoteNum()) == 0) {
+      throw new RequestNotValidException("invalid vote");
+    }
+    boolean eventExists =
+        voteAggregator != null || voteShards != null
+            ? lookupCache.rsEventExists(rsEventId)
+            : rsEventRepository.increaseVoteNum(rsEventId, vote.getVoteNum()) > 0;
+    if (!eventExists) {
+      throw new RequestNotValidException("invalid rsEventId");
     }
     VoteDto voteDto =
         VoteDto.builder()
             .localDateTime(vote.getTime())
             .num(vote.getVoteNum())
-            .rsEvent(rsEventDto.get())
-            .user(userDto.get())
+            .rsEvent(rsEventRepository.getOne(rsEventId))
+            .user(userRepository.getOne(vote.getUserId()))
             .build();
     voteRepository.save(voteDto);
-    UserDto user = userDto.get();
-    user.setVoteNum(user.getVoteNum() - vote.getVoteNum());
-    userRepository.save(user);
-    RsEventDto rsEvent = rsEventDto.get();
-    rsEvent.setVoteNum(rsEvent.getVoteNum() + vote.getVoteNum());
-    rsEventRepository.save(rsEvent);
+    changeFeed.recordVotes(Collections.singletonList(vote));
+    if (voteShards != null) {
+      TransactionHooks.afterCommit(() -> voteShards.add(vote));
+      return;
+    }
+    if (voteAggregator != null) {
+      TransactionHooks.afterCommit(() -> voteAggregator.add(rsEventId, vote.getVoteNum()));
+    }
+    rsEventRanking.addVotes(rsEventId, vote.getVoteNum());
+    hotRanking.addVotes(rsEventId, vote.getVoteNum(), vote.getTime());
   }
 
+  /**
+   * Applies a batch of votes with one existence query per table and one JDBC batch per
+   * statement. Each vote succeeds or fails on its own; votes from the same user are spent in
+   * request order.
+   */
+  @Transactional
+  public List<VoteResult> voteBatch(List<Vote> votes) {
+    if (votes == null || votes.isEmpty() || votes.size() > MAX_VOTE_BATCH) {
+      throw new RequestNotValidException("invalid vote batch");
+    }
+    Set<Integer> userIds =
+        lookupCache.existingUserIds(
+            votes.stream().map(Vote::getUserId).collect(Collectors.toSet()));
+    Set<Integer> rsEventIds =
+        lookupCache.existingRsEventIds(
+            votes.stream().map(Vote::getRsEventId).collect(Collectors.toSet()));
+    String[] errors = new String[votes.size()];
+    List<Integer> accepted = new ArrayList<>();
+    for (int i = 0; i < votes.size(); i++) {
+      Vote vote = votes.get(i);
+      if (vote.getVoteNum() < 1) {
+        errors[i] = "invalid vote num";
+      } else if (!userIds.contains(vote.getUserId())) {
+        errors[i] = "invalid userId";
+      } else if (!rsEventIds.contains(vote.getRsEventId())) {
+        errors[i] = "invalid rsEventId";
+      } else {
+        accepted.add(i);
+      }
+    }
+    if (voteJournal != null) {
+      String[] journaled =
+          voteJournal.appendAll(accepted.stream().map(votes::get).collect(Collectors.toList()));
+      for (int k = 0; k < journaled.length; k++) {
+        if (journaled[k] != null) {
+          errors[accepted.get(k)] = journaled[k];
+        }
+      }
+      return toVoteResults(votes, errors);
+    }
+    int[] spent =
+        accepted.isEmpty()
+            ? new int[0]
+            : voteBatchRepository.spendUserVotes(
+                accepted.stream().map(votes::get).collect(Collectors.toList()));
+    Map<Integer, Integer> deltaByEventId = new HashMap<>();
+    List<VoteDto> voteDtos = new ArrayList<>();
+    List<Vote> applied = new ArrayList<>();
+    for (int k = 0; k < spent.length; k++) {
+      Vote vote = votes.get(accepted.get(k));
+      if (spent[k] == 0) {
+        errors[accepted.get(k)] = "invalid vote";
+        continue;
+      }
+      deltaByEventId.merge(vote.getRsEventId(), vote.getVoteNum(), Integer::sum);
+      applied.add(vote);
+      voteDtos.add(
+          VoteDto.builder()
+              .localDateTime(vote.getTime())
+              .num(vote.getVoteNum())
+              .rsEvent(rsEventRepository.getOne(vote.getRsEventId()))
+              .user(userRepository.getOne(vote.getUserId()))
+              .build());
+    }
+    if (!deltaByEventId.isEmpty()) {
+      if (voteShards != null) {
+        TransactionHooks.afterCommit(() -> applied.forEach(voteShards::add));
+      } else if (voteAggregator != null) {
+        TransactionHooks.afterCommit(() -> deltaByEventId.forEach(voteAggregator::add));
+      } else {
+        voteBatchRepository.addEventVotes(deltaByEventId);
+      }
+      voteRepository.saveAll(voteDtos);
+      changeFeed.recordVotes(applied);
+      if (voteShards == null) {
+        deltaByEventId.forEach(rsEventRanking::addVotes);
+        applied.forEach(
+            vote -> hotRanking.addVotes(vote.getRsEventId(), vote.getVoteNum(), vote.getTime()));
+      }
+    }
+    return toVoteResults(votes, errors);
+  }
+
+  private static List<VoteResult> toVoteResults(List<Vote> votes, String[] errors) {
+    List<VoteResult> results = new ArrayList<>();
+    for (int i = 0; i < votes.size(); i++) {
+      results.add(
+          VoteResult.builder()
+              .userId(votes.get(i).getUserId())
+              .rsEventId(votes.get(i).getRsEventId())
+              .success(errors[i] == null)
+              .error(errors[i])
+              .build());
+    }
+    return results;
+  }
+
+  /**
+   * Buys a rank in one transaction. The bid first takes the rank's {@code rank_slot} row with a
+   * conditional update, which keeps the row locked until commit and so serialises buyers of the
+   * rank across every instance sharing the database. A single query then finds the buyer and the
+   * current holder, and both are changed with version-checked statements. A version or lock
+   * conflict rolls the whole trade back and it is retried from a fresh read. The rank is checked
+   * against the event count in the database, since this instance's ranking may not have seen
+   * events posted through another.
+   */
   public void buy(Trade trade, int id) {
-    Optional<RsEventDto> rsEventDto = rsEventRepository.findById(id);
-    if(!rsEventDto.isPresent() || trade.getRank()>tradeAmountForRank.size()){
+    if(trade.getRank() < 1 || trade.getRank() > AuctionBook.MAX_RANK
+            || trade.getRank() > rsEventRepository.count()){
       throw new RequestNotValidException("invlid trade param");
     }
-
-    if(trade.getAmount()<=tradeAmountForRank.get(trade.getRank()-1)){
+    if(trade.getAmount() <= auctionBook.amount(trade.getRank())){
       throw new RequestNotValidException("invlid trade amount");
     }
-    RsEventDto rsEvent = rsEventDto.get();
-    TradeDto tradeDto = TradeDto.builder().amount(trade.getAmount())
+    for (int attempt = 1; ; attempt++) {
+      try {
+        transactionTemplate.execute(status -> {
+          applyTrade(trade, id);
+          return null;
+        });
+        auctionBook.raise(trade.getRank(), trade.getAmount());
+        return;
+      } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+        if (attempt == MAX_BUY_ATTEMPTS) {
+          throw new RequestNotValidException("trade conflict");
+        }
+      }
+      backOff(attempt);
+    }
+  }
+
+  private void applyTrade(Trade trade, int id) {
+    if (rankSlotRepository.outbid(trade.getRank(), trade.getAmount(), id) == 0) {
+      Optional<RankSlotDto> slot = rankSlotRepository.findById(trade.getRank());
+      if (slot.isPresent()) {
+        auctionBook.raise(trade.getRank(), slot.get().getAmount());
+        throw new RequestNotValidException("invlid trade amount");
+      }
+      rankSlotRepository.insert(trade.getRank(), trade.getAmount(), id);
+    }
+    List<RsEventDto> found = rsEventRepository.findByIdOrTradeRank(id, trade.getRank());
+    RsEventDto rsEvent = found.stream().filter(item -> item.getId() == id).findFirst()
+            .orElseThrow(() -> new RequestNotValidException("invlid trade param"));
+    tradeRepository.save(TradeDto.builder().amount(trade.getAmount())
             .rank(trade.getRank())
             .rsEvent(rsEvent)
-            .build();
-    tradeRepository.save(tradeDto);
-    tradeAmountForRank.set(trade.getRank()-1,trade.getAmount());
-    if(rsEventRepository.findByTradeRank(trade.getRank()).isPresent()){
-      tradeRepository.deleteAllByRsEventId(rsEventRepository.findByTradeRank(trade.getRank()).get().getId());
-      rsEventRepository.deleteAllByTradeRank(trade.getRank());
+            .build());
+    changeFeed.recordTrade(trade, id);
+    for (RsEventDto holder : found) {
+      if (holder.getId() == id || holder.getTradeRank() != trade.getRank()) {
+        continue;
+      }
+      tradeRepository.deleteByRsEventId(holder.getId());
+      voteRepository.deleteByRsEventId(holder.getId());
+      if (rsEventRepository.deleteByIdAndVersion(holder.getId(), holder.getVersion()) == 0) {
+        throw new ObjectOptimisticLockingFailureException(RsEventDto.class, holder.getId());
+      }
+      rsEventListener.removed(holder.getId());
+      lookupCache.evictRsEvent(holder.getId());
+    }
+    if (rsEventRepository.updateTradeRank(id, trade.getRank(), rsEvent.getVersion()) == 0) {
+      throw new ObjectOptimisticLockingFailureException(RsEventDto.class, id);
+    }
+    rsEventRanking.setTradeRank(id, trade.getRank());
+  }
+
+  private static void backOff(int attempt) {
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextInt(1, 1 + 5 * attempt));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RequestNotValidException("trade conflict");
     }
-    rsEvent.setTradeRank(trade.getRank());
-    rsEventRepository.save(rsEvent);
   }
 
   public void postEvent(RsEvent rsEvent) {
-    Optional<UserDto> userDto = userRepository.findById(rsEvent.getUserId());
-    if (!userDto.isPresent()) {
+    if (!lookupCache.userExists(rsEvent.getUserId())) {
       throw new RequestNotValidException("invalid userId");
     }
     RsEventDto build =
@@ -104,62 +374,161 @@ public class RsService {
                     .keyword(rsEvent.getKeyword())
                     .eventName(rsEvent.getEventName())
                     .voteNum(0)
-                    .user(userDto.get())
+                    .user(userRepository.getOne(rsEvent.getUserId()))
                     .build();
     rsEventRepository.save(build);
-    tradeAmountForRank.add(0);
   }
 
 
 
   public List<RsEvent> getEventList(Integer start, Integer end) {
-    List<RsEvent> rsEvents = new ArrayList<>();
-    List<RsEvent> rsEventsByTrade = new ArrayList<>();
-
-    rsEventRepository.findAll(Sort.by(Sort.Direction.DESC,"voteNum")).stream()
-            .forEach(
-                    item -> {
-                      RsEvent rsEvent = RsEvent.builder()
-                              .eventName(item.getEventName())
-                              .keyword(item.getKeyword())
-                              .userId(item.getId())
-                              .voteNum(item.getVoteNum())
-                              .tradeRank(item.getTradeRank())
-                              .build();
-                      if (rsEvent.getTradeRank() != 0){
-                        rsEventsByTrade.add(rsEvent);
-                      }else rsEvents.add(rsEvent);
-                    }
-            );
-    for (RsEvent rsEvent : rsEventsByTrade) {
-      rsEvents.add(rsEvent.getTradeRank()-1,rsEvent);
-    }
-    if (start == null || end == null) {
-      return rsEvents;
-    }
-    return rsEvents.subList(start - 1, end);
+    return getEventList(null, null, start, end);
   }
 
-  public RsEvent getEventByIndex(int index) {
-    List<RsEvent> rsEvents =
-            rsEventRepository.findAll(Sort.by(Sort.Direction.DESC,"voteNum")).stream()
-                    .map(
-                            item ->
-                                    RsEvent.builder()
-                                            .eventName(item.getEventName())
-                                            .keyword(item.getKeyword())
-                                            .userId(item.getId())
-                                            .voteNum(item.getVoteNum())
-                                            .build())
-                    .collect(Collectors.toList());
-    if (index < 1 || index > rsEvents.size()) {
+  /**
+   * With a keyword, ranks only that keyword's events, read from its own partition. Mode {@code
+   * hot} orders by time-decayed votes instead of lifetime votes and takes no keyword.
+   */
+  public List<RsEvent> getEventList(String keyword, String mode, Integer start, Integer end) {
+    if (mode != null && !MODE_VOTES.equals(mode) && !(MODE_HOT.equals(mode) && keyword == null)) {
+      throw new RequestNotValidException("invalid mode");
+    }
+    boolean hot = MODE_HOT.equals(mode);
+    return listReads.execute(
+        Arrays.asList(keyword, hot, start, end),
+        () -> {
+          if (start == null || end == null) {
+            return toRsEvents(slice(keyword, hot, 1, Integer.MAX_VALUE));
+          }
+          List<RankEntry> entries = slice(keyword, hot, start, end);
+          if (start < 1 || start > end || entries.size() != end - start + 1) {
+            throw new RequestNotValidException("invalid index");
+          }
+          return toRsEvents(entries);
+        });
+  }
+
+  private List<RankEntry> slice(String keyword, boolean hot, int from, int to) {
+    if (hot) {
+      return hotRanking.slice(from, to);
+    }
+    return keyword == null
+        ? rsEventRanking.slice(from, to)
+        : rsEventRanking.slice(keyword, from, to);
+  }
+
+  private List<RsEvent> toRsEvents(List<RankEntry> entries) {
+    return Collections.unmodifiableList(
+        entries.stream().map(this::toRsEvent).collect(Collectors.toList()));
+  }
+
+  private RsEvent toRsEvent(RankEntry item) {
+    return RsEvent.builder()
+            .eventName(item.getEventName())
+            .keyword(item.getKeyword())
+            .userId(item.getId())
+            .voteNum(item.getVoteNum())
+            .tradeRank(item.getTradeRank())
+            .build();
+  }
+
+  /**
+   * Events whose name or keyword contains every term of {@code query}, in leaderboard order.
+   * {@code start}/{@code end} are 1-based positions among the matches, at most {@value
+   * #MAX_SEARCH_WINDOW} apart.
+   */
+  public List<RsEvent> search(String query, Integer start, Integer end) {
+    int from = start == null ? 1 : start;
+    int to = end == null ? from + DEFAULT_SEARCH_WINDOW - 1 : end;
+    if (query == null || query.trim().isEmpty()) {
+      throw new RequestNotValidException("invalid query");
+    }
+    if (from < 1 || from > to || to - from + 1 > MAX_SEARCH_WINDOW) {
       throw new RequestNotValidException("invalid index");
     }
-    return rsEvents.get(index - 1);
+    return toRsEvents(rsEventRanking.select(searchIndex.search(query), from, to));
+  }
+
+  /** Up to {@code limit} events whose name starts with {@code prefix}, most voted first. */
+  public List<RsEvent> suggest(String prefix, Integer limit) {
+    int size = limit == null ? DEFAULT_SUGGESTIONS : limit;
+    if (prefix == null || prefix.isEmpty()) {
+      throw new RequestNotValidException("invalid prefix");
+    }
+    if (size < 1 || size > MAX_SUGGESTIONS) {
+      throw new RequestNotValidException("invalid limit");
+    }
+    return toRsEvents(rsEventRanking.suggest(prefix, size));
+  }
+
+  public RsEvent getEventByIndex(int index) {
+    return indexReads.execute(
+        index,
+        () -> {
+          RankEntry entry = rsEventRanking.get(index);
+          if (entry == null) {
+            throw new RequestNotValidException("invalid index");
+          }
+          return toRsEvent(entry);
+        });
+  }
+
+  /** Calls made by concurrent readers asking for the same list or position are shared. */
+  public SingleFlight<List<Object>, List<RsEvent>> listReads() {
+    return listReads;
+  }
+
+  public SingleFlight<Integer, RsEvent> indexReads() {
+    return indexReads;
   }
 
+  /**
+   * Deletes the event, its trades and the votes cast on it with one bulk statement per table
+   * instead of loading every child entity.
+   */
+  @Transactional
   public void deleteEventByIndex(int index) {
-    rsEventRepository.deleteById(index);
-    tradeAmountForRank.remove(tradeAmountForRank.size()-1);
+    tradeRepository.deleteByRsEventId(index);
+    voteRepository.deleteByRsEventId(index);
+    if (rsEventRepository.deleteEvent(index) == 0) {
+      throw new RequestNotValidException("invalid index");
+    }
+    rankSlotRepository.releaseHolders(Collections.singletonList(index));
+    rsEventListener.removed(index);
+    lookupCache.evictRsEvent(index);
+  }
+
+  /**
+   * Deletes the user together with their events, the trades on those events, the votes cast on
+   * them and the votes the user cast elsewhere, with one bulk statement per table. The votes cast
+   * elsewhere are first taken back from those events' counts and rankings.
+   */
+  @Transactional
+  public void deleteUser(int userId) {
+    List<Integer> rsEventIds = rsEventRepository.findIdsByUserId(userId);
+    List<VoteRecord> castElsewhere = voteRepository.findRecordsOnOtherUsersEvents(userId);
+    if (!castElsewhere.isEmpty()) {
+      Map<Integer, Integer> deltaByEventId = new HashMap<>();
+      for (VoteRecord record : castElsewhere) {
+        deltaByEventId.merge(record.getRsEventId(), -record.getVoteNum(), Integer::sum);
+      }
+      voteBatchRepository.addEventVotes(deltaByEventId);
+      deltaByEventId.forEach(rsEventRanking::addVotes);
+      castElsewhere.forEach(
+          record ->
+              hotRanking.addVotes(record.getRsEventId(), -record.getVoteNum(), record.getTime()));
+    }
+    tradeRepository.deleteByEventUserId(userId);
+    voteRepository.deleteByUserIdOrEventUserId(userId);
+    rsEventRepository.deleteByUserId(userId);
+    if (userRepository.deleteUser(userId) == 0) {
+      throw new RequestNotValidException("invalid userId");
+    }
+    if (!rsEventIds.isEmpty()) {
+      rankSlotRepository.releaseHolders(rsEventIds);
+    }
+    rsEventIds.forEach(rsEventListener::removed);
+    rsEventIds.forEach(lookupCache::evictRsEvent);
+    lookupCache.evictUser(userId);
   }
 }
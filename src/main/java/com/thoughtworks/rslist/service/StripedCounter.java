@@ -0,0 +1,36 @@
+package com.thoughtworks.rslist.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter spread over several cells so concurrent writers rarely hit the same one. Unlike
+ * {@code LongAdder.sumThenReset}, {@link #drain()} never loses concurrent increments.
+ */
+class StripedCounter {
+  private static final int STRIPES = 8;
+  private static final int PADDING = 16;
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+  void add(long delta) {
+    int stripe = (int) (Thread.currentThread().getId() % STRIPES);
+    cells.addAndGet(stripe * PADDING, delta);
+  }
+
+  long sum() {
+    long sum = 0;
+    for (int stripe = 0; stripe < STRIPES; stripe++) {
+      sum += cells.get(stripe * PADDING);
+    }
+    return sum;
+  }
+
+  /** Returns the current total and resets it to zero. */
+  long drain() {
+    long sum = 0;
+    for (int stripe = 0; stripe < STRIPES; stripe++) {
+      sum += cells.getAndSet(stripe * PADDING, 0);
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,70 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.User;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.Validator;
+import java.util.List;
+
+@Service
+public class UserService {
+  static final int MAX_USER_BATCH = 10000;
+
+  final UserRepository userRepository;
+  final Validator validator;
+  final int batchSize;
+  @PersistenceContext EntityManager entityManager;
+
+  public UserService(
+      UserRepository userRepository,
+      Validator validator,
+      @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+    this.userRepository = userRepository;
+    this.validator = validator;
+    this.batchSize = batchSize;
+  }
+
+  public void register(User user) {
+    userRepository.save(toUserDto(user));
+  }
+
+  /**
+   * Registers all users or none. Ids come from the pooled user_seq and rows are flushed every
+   * JDBC batch, so the insert cost is one batched statement per {@code batchSize} users and the
+   * persistence context never holds more than one batch.
+   */
+  @Transactional
+  public void registerAll(List<User> users) {
+    if (users == null || users.isEmpty() || users.size() > MAX_USER_BATCH) {
+      throw new RequestNotValidException("invalid user batch");
+    }
+    if (users.stream().anyMatch(user -> !validator.validate(user).isEmpty())) {
+      throw new RequestNotValidException("invalid user");
+    }
+    for (int i = 0; i < users.size(); i++) {
+      entityManager.persist(toUserDto(users.get(i)));
+      if ((i + 1) % batchSize == 0) {
+        entityManager.flush();
+        entityManager.clear();
+      }
+    }
+  }
+
+  private static UserDto toUserDto(User user) {
+    UserDto userDto = new UserDto();
+    userDto.setGender(user.getGender());
+    userDto.setPhone(user.getPhone());
+    userDto.setVoteNum(user.getVoteNum());
+    userDto.setAge(user.getAge());
+    userDto.setEmail(user.getEmail());
+    userDto.setUserName(user.getUserName());
+    return userDto;
+  }
+}
@@ -0,0 +1,88 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.repository.VoteBatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for rs event vote counts, enabled with {@code rs.vote.mode=write-behind}.
+ * Votes are recorded and balances spent synchronously, but event increments are summed per event
+ * and written in one batched update per flush interval, so hot events stop serializing on their
+ * row lock. The vote table stays the source of truth: on startup every event's voteNum is
+ * recomputed from it, which recovers deltas lost in a crash. That recompute would double count
+ * deltas buffered by another instance, so only one instance may run in this mode; see {@link
+ * VoteWriterLease}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rs.vote.mode", havingValue = "write-behind")
+public class VoteAggregator {
+  private final VoteBatchRepository voteBatchRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final VoteReconciler voteReconciler;
+  private final Map<Integer, StripedCounter> pending = new ConcurrentHashMap<>();
+
+  public VoteAggregator(
+      VoteBatchRepository voteBatchRepository,
+      PlatformTransactionManager transactionManager,
+      VoteReconciler voteReconciler) {
+    this.voteBatchRepository = voteBatchRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.voteReconciler = voteReconciler;
+  }
+
+  @PostConstruct
+  public void reconcile() {
+    voteReconciler.reconcile();
+  }
+
+  public void add(int rsEventId, int num) {
+    pending.computeIfAbsent(rsEventId, id -> new StripedCounter()).add(num);
+  }
+
+  public long pending(int rsEventId) {
+    StripedCounter counter = pending.get(rsEventId);
+    return counter == null ? 0 : counter.sum();
+  }
+
+  @Scheduled(fixedDelayString = "${rs.vote.flush-interval-ms:1000}")
+  @PreDestroy
+  public synchronized void flush() {
+    Map<Integer, Long> batch = new HashMap<>();
+    pending.forEach(
+        (rsEventId, counter) -> {
+          long delta = counter.drain();
+          if (delta != 0) {
+            batch.put(rsEventId, delta);
+          }
+        });
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      transactionTemplate.execute(
+          status -> {
+            voteBatchRepository.addEventVotes(batch);
+            return null;
+          });
+    } catch (RuntimeException e) {
+      log.warn("failed to flush {} vote deltas, retrying next interval", batch.size(), e);
+      batch.forEach((rsEventId, delta) -> add(rsEventId, delta.intValue()));
+    }
+  }
+
+  /** Drops buffered deltas without writing them. */
+  public void clear() {
+    pending.clear();
+  }
+}
@@ -0,0 +1,50 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteResult;
+import com.thoughtworks.rslist.support.GroupCommitter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Group commit for single votes, enabled with {@code rs.vote.group-commit.enabled=true}. Votes
+ * arriving within {@code rs.vote.group-commit.window-ms} of each other, up to {@code
+ * rs.vote.group-commit.max-size}, are applied through {@link RsService#voteBatch} in one
+ * transaction with batched statements, so they share one commit. A vote the batch rejects, such
+ * as one overspending its user's balance, fails alone.
+ */
+@Component
+@ConditionalOnProperty(name = "rs.vote.group-commit.enabled", havingValue = "true")
+public class VoteGroupCommitter {
+  private final GroupCommitter<Vote, VoteResult> committer;
+
+  public VoteGroupCommitter(
+      ObjectProvider<RsService> rsService,
+      @Value("${rs.vote.group-commit.window-ms:2}") long windowMillis,
+      @Value("${rs.vote.group-commit.max-size:200}") int maxSize) {
+    this.committer =
+        new GroupCommitter<>(
+            "vote-group-commit",
+            windowMillis,
+            Math.min(maxSize, RsService.MAX_VOTE_BATCH),
+            votes -> rsService.getObject().voteBatch(votes));
+  }
+
+  /** Returns once the transaction holding the vote has committed. */
+  public VoteResult submit(Vote vote) {
+    return committer.submit(vote);
+  }
+
+  public GroupCommitter<Vote, VoteResult> committer() {
+    return committer;
+  }
+
+  @PreDestroy
+  public void close() throws InterruptedException {
+    committer.close();
+  }
+}
@@ -0,0 +1,627 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.JournalCheckpointDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.dto.VoteDto;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.ranking.HotRanking;
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import com.thoughtworks.rslist.repository.JournalCheckpointRepository;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteBatchRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only vote journal, enabled with {@code rs.vote.mode=journal}. A vote is checked against
+ * an in-memory balance, written as a fixed-size record to a memory-mapped segment file and
+ * acknowledged once a background thread has forced the segment to disk; one force covers every
+ * record appended while the previous one ran. Rankings are updated on acknowledgement, while the
+ * vote, balance and event rows are written by {@link #materialize()} in batches, each in one
+ * transaction with the journal checkpoint. On startup the records after the checkpoint are
+ * replayed into the tables before any vote is taken.
+ *
+ * <p>Balances are tracked by this instance alone, so only one instance may run in this mode: it
+ * takes the {@link VoteWriterLease} before replaying. A vote whose user can no longer cover it
+ * when it is materialized, because the balance changed underneath, is dropped and taken back out
+ * of the rankings.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rs.vote.mode", havingValue = "journal")
+public class VoteJournal {
+  static final int RECORD_BYTES = 24;
+  private static final String SUFFIX = ".journal";
+
+  private final JournalCheckpointRepository checkpointRepository;
+  private final UserRepository userRepository;
+  private final RsEventRepository rsEventRepository;
+  private final VoteRepository voteRepository;
+  private final VoteBatchRepository voteBatchRepository;
+  private final LookupCache lookupCache;
+  private final ChangeFeed changeFeed;
+  private final RsEventRanking rsEventRanking;
+  private final HotRanking hotRanking;
+  private final VoteWriterLease voteWriterLease;
+  private final TransactionTemplate transactionTemplate;
+  private final Path dir;
+  private final long segmentBytes;
+  private final int materializeBatch;
+  private final int checkpointId;
+  private final Map<Integer, AtomicInteger> balances = new ConcurrentHashMap<>();
+  private final Map<Integer, AtomicInteger> unmaterialized = new ConcurrentHashMap<>();
+  private final Object balanceLock = new Object();
+  private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition appended = lock.newCondition();
+  private final Condition forced = lock.newCondition();
+  private Segment tail;
+  private long written;
+  private long synced;
+  private boolean closed;
+  private RuntimeException failure;
+  private long materialized;
+  private Thread syncer;
+
+  public VoteJournal(
+      JournalCheckpointRepository checkpointRepository,
+      UserRepository userRepository,
+      RsEventRepository rsEventRepository,
+      VoteRepository voteRepository,
+      VoteBatchRepository voteBatchRepository,
+      LookupCache lookupCache,
+      ChangeFeed changeFeed,
+      RsEventRanking rsEventRanking,
+      HotRanking hotRanking,
+      VoteWriterLease voteWriterLease,
+      PlatformTransactionManager transactionManager,
+      @Value("${rs.vote.journal.dir:${java.io.tmpdir}/rs-vote-journal}") String dir,
+      @Value("${rs.vote.journal.segment-bytes:67108864}") long segmentBytes,
+      @Value("${rs.vote.journal.materialize-batch:1000}") int materializeBatch,
+      @Value("${rs.vote.journal.id:1}") int checkpointId) {
+    if (segmentBytes < RECORD_BYTES || segmentBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("invalid journal segment size " + segmentBytes);
+    }
+    this.checkpointRepository = checkpointRepository;
+    this.userRepository = userRepository;
+    this.rsEventRepository = rsEventRepository;
+    this.voteRepository = voteRepository;
+    this.voteBatchRepository = voteBatchRepository;
+    this.lookupCache = lookupCache;
+    this.changeFeed = changeFeed;
+    this.rsEventRanking = rsEventRanking;
+    this.hotRanking = hotRanking;
+    this.voteWriterLease = voteWriterLease;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.dir = Paths.get(dir);
+    this.segmentBytes = segmentBytes - segmentBytes % RECORD_BYTES;
+    this.materializeBatch = materializeBatch;
+    this.checkpointId = checkpointId;
+  }
+
+  /**
+   * Maps the segment files, finds the end of the last complete record after the checkpoint and
+   * writes everything up to it into the tables.
+   */
+  @PostConstruct
+  public void open() throws IOException {
+    voteWriterLease.acquire();
+    Files.createDirectories(dir);
+    long checkpoint =
+        checkpointRepository
+            .findById(checkpointId)
+            .map(JournalCheckpointDto::getPosition)
+            .orElse(0L);
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path path :
+          files.filter(path -> path.toString().endsWith(SUFFIX)).collect(Collectors.toList())) {
+        String name = path.getFileName().toString();
+        long start = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        segments.put(start, new Segment(start, path, Files.size(path)));
+      }
+    }
+    long position = checkpoint;
+    for (Vote record = recordAt(position); record != null; record = recordAt(position)) {
+      pending(record.getUserId()).addAndGet(record.getVoteNum());
+      position += RECORD_BYTES;
+    }
+    // A crash may have left later records on disk without the ones before them; none of them
+    // were acknowledged, and they must not resurface once new records fill the gap.
+    for (Segment later : new ArrayList<>(segments.tailMap(position, false).values())) {
+      later.delete();
+      segments.remove(later.start);
+    }
+    Map.Entry<Long, Segment> last = segments.floorEntry(position);
+    if (last != null && position < last.getValue().end()) {
+      tail = last.getValue();
+      tail.zeroFrom(position);
+      tail.force();
+    } else {
+      tail = createSegment(position);
+    }
+    written = position;
+    synced = position;
+    materialized = checkpoint;
+    int replayed = 0;
+    for (int batch = materialize(); batch > 0; batch = materialize()) {
+      replayed += batch;
+    }
+    dropSegmentsBefore(materialized);
+    if (replayed > 0) {
+      log.info("replayed {} journaled votes", replayed);
+      rsEventRanking.rebuild();
+      hotRanking.rebuild();
+    }
+    syncer = new Thread(this::syncLoop, "vote-journal-sync");
+    syncer.setDaemon(true);
+    syncer.start();
+  }
+
+  /** Spends the vote from the user's balance and returns once its record is on disk. */
+  public void append(Vote vote) {
+    String error = spend(vote);
+    if (error != null) {
+      throw new RequestNotValidException(error);
+    }
+    awaitForced(write(vote));
+    apply(vote);
+  }
+
+  /**
+   * Spends and journals each vote on its own, waiting for one force that covers them all. Returns
+   * the error of each rejected vote, or null where the vote was taken.
+   */
+  public String[] appendAll(List<Vote> votes) {
+    String[] errors = new String[votes.size()];
+    long end = -1;
+    for (int i = 0; i < votes.size(); i++) {
+      errors[i] = spend(votes.get(i));
+      if (errors[i] == null) {
+        end = write(votes.get(i));
+      }
+    }
+    if (end < 0) {
+      return errors;
+    }
+    awaitForced(end);
+    for (int i = 0; i < votes.size(); i++) {
+      if (errors[i] == null) {
+        apply(votes.get(i));
+      }
+    }
+    return errors;
+  }
+
+  /**
+   * Writes the next batch of durable records into the vote, user and rs event tables and moves
+   * the checkpoint past them in the same transaction. Returns the number of records written.
+   */
+  @Scheduled(fixedDelayString = "${rs.vote.journal.materialize-ms:200}")
+  public synchronized int materialize() {
+    long end;
+    lock.lock();
+    try {
+      end = Math.min(synced, materialized + (long) materializeBatch * RECORD_BYTES);
+    } finally {
+      lock.unlock();
+    }
+    if (end <= materialized) {
+      return 0;
+    }
+    List<Vote> votes = new ArrayList<>();
+    for (long position = materialized; position < end; position += RECORD_BYTES) {
+      votes.add(recordAt(position));
+    }
+    try {
+      // A balance loaded between the commit and the pending update would count these votes twice.
+      synchronized (balanceLock) {
+        transactionTemplate.execute(
+            status -> {
+              store(votes, end);
+              return null;
+            });
+        for (Vote vote : votes) {
+          AtomicInteger pending = unmaterialized.get(vote.getUserId());
+          if (pending != null) {
+            pending.addAndGet(-vote.getVoteNum());
+          }
+        }
+      }
+    } catch (RuntimeException e) {
+      log.warn("failed to materialize {} journaled votes, retrying next interval", votes.size(), e);
+      return 0;
+    }
+    materialized = end;
+    dropSegmentsBefore(end);
+    return votes.size();
+  }
+
+  /** Checkpoints past every synced record, so none of them is materialized again. */
+  public synchronized void clear() {
+    long position;
+    lock.lock();
+    try {
+      position = synced;
+    } finally {
+      lock.unlock();
+    }
+    synchronized (balanceLock) {
+      checkpointRepository.save(new JournalCheckpointDto(checkpointId, position));
+      materialized = position;
+      balances.clear();
+      unmaterialized.clear();
+    }
+    dropSegmentsBefore(position);
+  }
+
+  /** Records on disk that are not in the tables yet. */
+  synchronized long unmaterialized() {
+    lock.lock();
+    try {
+      return (synced - materialized) / RECORD_BYTES;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @PreDestroy
+  public void close() throws InterruptedException {
+    lock.lock();
+    try {
+      closed = true;
+      appended.signal();
+    } finally {
+      lock.unlock();
+    }
+    syncer.join();
+    while (materialize() > 0) {
+      // drain what the final force made durable
+    }
+    for (Segment segment : segments.values()) {
+      segment.close();
+    }
+  }
+
+  private String spend(Vote vote) {
+    if (!lookupCache.userExists(vote.getUserId())) {
+      return "invalid vote";
+    }
+    if (!lookupCache.rsEventExists(vote.getRsEventId())) {
+      return "invalid rsEventId";
+    }
+    AtomicInteger balance = balance(vote.getUserId());
+    if (balance == null || !trySpend(balance, vote.getVoteNum())) {
+      return "invalid vote";
+    }
+    pending(vote.getUserId()).addAndGet(vote.getVoteNum());
+    return null;
+  }
+
+  private AtomicInteger balance(int userId) {
+    AtomicInteger balance = balances.get(userId);
+    if (balance != null) {
+      return balance;
+    }
+    synchronized (balanceLock) {
+      balance = balances.get(userId);
+      if (balance == null) {
+        Optional<UserDto> user = userRepository.findById(userId);
+        if (!user.isPresent()) {
+          return null;
+        }
+        balance = new AtomicInteger(user.get().getVoteNum() - pending(userId).get());
+        balances.put(userId, balance);
+      }
+      return balance;
+    }
+  }
+
+  private AtomicInteger pending(int userId) {
+    return unmaterialized.computeIfAbsent(userId, id -> new AtomicInteger());
+  }
+
+  private static boolean trySpend(AtomicInteger balance, int num) {
+    int current;
+    do {
+      current = balance.get();
+      if (current < num) {
+        return false;
+      }
+    } while (!balance.compareAndSet(current, current - num));
+    return true;
+  }
+
+  /** Returns the position just past the written record. */
+  private long write(Vote vote) {
+    lock.lock();
+    try {
+      if (closed || failure != null) {
+        throw new IllegalStateException("vote journal is not writable", failure);
+      }
+      if (written + RECORD_BYTES > tail.end()) {
+        tail.force();
+        tail = createSegment(written);
+      }
+      tail.write(written, vote);
+      written += RECORD_BYTES;
+      appended.signal();
+      return written;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void awaitForced(long position) {
+    lock.lock();
+    try {
+      while (synced < position) {
+        if (failure != null) {
+          throw new IllegalStateException("vote journal could not be forced to disk", failure);
+        }
+        forced.awaitUninterruptibly();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void syncLoop() {
+    while (true) {
+      Segment segment;
+      long target;
+      lock.lock();
+      try {
+        while (synced == written && !closed) {
+          appended.awaitUninterruptibly();
+        }
+        if (synced == written) {
+          return;
+        }
+        segment = tail;
+        target = written;
+      } finally {
+        lock.unlock();
+      }
+      // Appends carry on while the force runs and are covered by the next one.
+      RuntimeException error = null;
+      try {
+        segment.force();
+      } catch (RuntimeException e) {
+        log.error("failed to force vote journal, rejecting further votes", e);
+        error = e;
+      }
+      lock.lock();
+      try {
+        if (error != null) {
+          failure = error;
+        } else {
+          synced = target;
+        }
+        forced.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      if (error != null) {
+        return;
+      }
+    }
+  }
+
+  private void apply(Vote vote) {
+    rsEventRanking.addVotes(vote.getRsEventId(), vote.getVoteNum());
+    hotRanking.addVotes(vote.getRsEventId(), vote.getVoteNum(), vote.getTime());
+  }
+
+  /**
+   * Spends the votes from the stored balances like the direct mode does. Votes for events deleted
+   * since are spent but not recorded, as if they had been deleted along with the event. Votes the
+   * user can no longer cover are dropped and taken back out of the rankings once this commits.
+   */
+  private void store(List<Vote> votes, long end) {
+    Set<Integer> rsEventIds =
+        new HashSet<>(
+            rsEventRepository.findExistingIds(
+                votes.stream().map(Vote::getRsEventId).collect(Collectors.toSet())));
+    int[] spent = voteBatchRepository.spendUserVotes(votes);
+    Map<Integer, Integer> deltaByEventId = new HashMap<>();
+    List<VoteDto> voteDtos = new ArrayList<>();
+    List<Vote> applied = new ArrayList<>();
+    int dropped = 0;
+    for (int k = 0; k < votes.size(); k++) {
+      Vote vote = votes.get(k);
+      if (spent[k] == 0) {
+        dropped++;
+        rsEventRanking.addVotes(vote.getRsEventId(), -vote.getVoteNum());
+        hotRanking.addVotes(vote.getRsEventId(), -vote.getVoteNum(), vote.getTime());
+        continue;
+      }
+      if (!rsEventIds.contains(vote.getRsEventId())) {
+        continue;
+      }
+      deltaByEventId.merge(vote.getRsEventId(), vote.getVoteNum(), Integer::sum);
+      applied.add(vote);
+      voteDtos.add(
+          VoteDto.builder()
+              .localDateTime(vote.getTime())
+              .num(vote.getVoteNum())
+              .rsEvent(rsEventRepository.getOne(vote.getRsEventId()))
+              .user(userRepository.getOne(vote.getUserId()))
+              .build());
+    }
+    if (dropped > 0) {
+      log.warn("dropped {} journaled votes their users can no longer cover", dropped);
+    }
+    if (!applied.isEmpty()) {
+      voteBatchRepository.addEventVotes(deltaByEventId);
+      voteRepository.saveAll(voteDtos);
+      changeFeed.recordVotes(applied);
+    }
+    checkpointRepository.save(new JournalCheckpointDto(checkpointId, end));
+  }
+
+  private Vote recordAt(long position) {
+    Map.Entry<Long, Segment> entry = segments.floorEntry(position);
+    if (entry == null || position + RECORD_BYTES > entry.getValue().end()) {
+      return null;
+    }
+    return entry.getValue().read(position);
+  }
+
+  private Segment createSegment(long start) {
+    try {
+      Segment segment =
+          new Segment(start, dir.resolve(String.format("%020d%s", start, SUFFIX)), segmentBytes);
+      segments.put(start, segment);
+      return segment;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void dropSegmentsBefore(long position) {
+    lock.lock();
+    try {
+      Iterator<Segment> iterator = segments.values().iterator();
+      while (iterator.hasNext()) {
+        Segment segment = iterator.next();
+        if (segment == tail || segment.end() > position) {
+          return;
+        }
+        segment.delete();
+        iterator.remove();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static int checksum(int userId, int rsEventId, int voteNum, long millis) {
+    int hash = userId * 0x9E3779B1 ^ rsEventId;
+    hash = hash * 0x9E3779B1 ^ voteNum;
+    hash = hash * 0x9E3779B1 ^ (int) (millis ^ millis >>> 32);
+    return hash * 0x9E3779B1 | 1;
+  }
+
+  /**
+   * One mapped journal file holding the records from byte position {@code start}. A record is
+   * userId, rsEventId, voteNum, epoch millis and a checksum; zeroed or torn records fail the
+   * checksum.
+   */
+  private static final class Segment {
+    final long start;
+    final Path path;
+    final FileChannel channel;
+    final MappedByteBuffer buffer;
+
+    Segment(long start, Path path, long bytes) throws IOException {
+      this.start = start;
+      this.path = path;
+      this.channel =
+          FileChannel.open(
+              path,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE);
+      this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes - bytes % RECORD_BYTES);
+    }
+
+    long end() {
+      return start + buffer.capacity();
+    }
+
+    void write(long position, Vote vote) {
+      int offset = (int) (position - start);
+      LocalDateTime time = vote.getTime() == null ? LocalDateTime.now() : vote.getTime();
+      long millis = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+      buffer.putInt(offset, vote.getUserId());
+      buffer.putInt(offset + 4, vote.getRsEventId());
+      buffer.putInt(offset + 8, vote.getVoteNum());
+      buffer.putLong(offset + 12, millis);
+      buffer.putInt(
+          offset + 20, checksum(vote.getUserId(), vote.getRsEventId(), vote.getVoteNum(), millis));
+    }
+
+    /** The record at {@code position}, or null where no complete record was written. */
+    Vote read(long position) {
+      int offset = (int) (position - start);
+      int userId = buffer.getInt(offset);
+      int rsEventId = buffer.getInt(offset + 4);
+      int voteNum = buffer.getInt(offset + 8);
+      long millis = buffer.getLong(offset + 12);
+      if (voteNum < 1 || buffer.getInt(offset + 20) != checksum(userId, rsEventId, voteNum, millis)) {
+        return null;
+      }
+      return Vote.builder()
+          .userId(userId)
+          .rsEventId(rsEventId)
+          .voteNum(voteNum)
+          .time(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()))
+          .build();
+    }
+
+    void zeroFrom(long position) {
+      for (int offset = (int) (position - start); offset < buffer.capacity(); offset += 8) {
+        buffer.putLong(offset, 0);
+      }
+    }
+
+    void force() {
+      buffer.force();
+    }
+
+    void close() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        log.warn("failed to close journal segment {}", path, e);
+      }
+    }
+
+    void delete() {
+      close();
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        log.warn("failed to delete journal segment {}", path, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import com.thoughtworks.rslist.repository.VoteBatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Startup step of the vote modes that buffer event counts: takes the {@link VoteWriterLease},
+ * recomputes every event's voteNum from the vote table to recover counts lost in a crash, and
+ * reloads the ranking from the corrected rows.
+ */
+@Slf4j
+@Component
+public class VoteReconciler {
+  private final VoteWriterLease voteWriterLease;
+  private final VoteBatchRepository voteBatchRepository;
+  private final RsEventRanking rsEventRanking;
+
+  public VoteReconciler(
+      VoteWriterLease voteWriterLease,
+      VoteBatchRepository voteBatchRepository,
+      RsEventRanking rsEventRanking) {
+    this.voteWriterLease = voteWriterLease;
+    this.voteBatchRepository = voteBatchRepository;
+    this.rsEventRanking = rsEventRanking;
+  }
+
+  public void reconcile() {
+    voteWriterLease.acquire();
+    int updated = voteBatchRepository.recomputeEventVotes();
+    log.info("reconciled vote_num of {} rs events from the vote table", updated);
+    rsEventRanking.rebuild();
+  }
+}
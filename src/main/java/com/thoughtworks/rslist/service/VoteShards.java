@@ -0,0 +1,335 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.ranking.HotRanking;
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import com.thoughtworks.rslist.repository.VoteBatchRepository;
+import com.thoughtworks.rslist.support.RingBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Single-writer vote processing, enabled with {@code rs.vote.mode=sharded}. Votes committed by
+ * {@link RsService} are handed to one of {@code rs.vote.shards.count} shard threads, chosen by rs
+ * event id, through a lock-free {@link RingBuffer}. Each shard alone owns the pending vote counts
+ * of its events: it updates the rankings once per event per drained batch and writes its counts to
+ * {@code rs_event} in one batched update every {@code rs.vote.shards.flush-interval-ms}, so votes
+ * on a hot event neither lock its row nor contend in memory. User balances are still spent with
+ * conditional updates in the vote's transaction, which keeps them exact across shards. Like
+ * write-behind mode, every event's vote count is recomputed from the vote table on startup, so
+ * this mode too is limited to one instance by {@link VoteWriterLease}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rs.vote.mode", havingValue = "sharded")
+public class VoteShards {
+  private static final int DRAIN_BATCH = 256;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final long STOP_CHECK_MILLIS = 100;
+  private static final String STOPPED = "vote shards are stopped";
+
+  private final VoteBatchRepository voteBatchRepository;
+  private final RsEventRanking rsEventRanking;
+  private final HotRanking hotRanking;
+  private final VoteReconciler voteReconciler;
+  private final TransactionTemplate transactionTemplate;
+  private final long flushIntervalNanos;
+  private final Shard[] shards;
+  private volatile boolean running;
+
+  public VoteShards(
+      VoteBatchRepository voteBatchRepository,
+      RsEventRanking rsEventRanking,
+      HotRanking hotRanking,
+      VoteReconciler voteReconciler,
+      PlatformTransactionManager transactionManager,
+      @Value("${rs.vote.shards.count:4}") int count,
+      @Value("${rs.vote.shards.ring-size:4096}") int ringSize,
+      @Value("${rs.vote.shards.flush-interval-ms:1000}") long flushIntervalMillis) {
+    if (count < 1) {
+      throw new IllegalArgumentException("invalid shard count " + count);
+    }
+    this.voteBatchRepository = voteBatchRepository;
+    this.rsEventRanking = rsEventRanking;
+    this.hotRanking = hotRanking;
+    this.voteReconciler = voteReconciler;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    this.shards = new Shard[count];
+    for (int i = 0; i < count; i++) {
+      shards[i] = new Shard(i, ringSize);
+    }
+  }
+
+  @PostConstruct
+  public void start() {
+    voteReconciler.reconcile();
+    running = true;
+    for (Shard shard : shards) {
+      shard.thread.start();
+    }
+  }
+
+  /**
+   * Hands a committed vote to the shard owning its event, waiting while that shard is full.
+   * Throws {@link IllegalStateException} once the shard thread has stopped.
+   */
+  public void add(Vote vote) {
+    Shard shard = shardOf(vote.getRsEventId());
+    Cast cast = new Cast(vote.getRsEventId(), vote.getVoteNum(), vote.getTime());
+    shard.checkRunning();
+    while (!shard.ring.offer(cast)) {
+      shard.checkRunning();
+      Thread.yield();
+    }
+  }
+
+  /** Votes handed over but not yet written to {@code rs_event}. */
+  public long pending(int rsEventId) {
+    return shardOf(rsEventId).call(shard -> shard.pending(rsEventId));
+  }
+
+  /** Writes every shard's pending counts and returns once they are committed. */
+  public void flush() {
+    for (Shard shard : shards) {
+      shard.call(
+          owner -> {
+            owner.flush();
+            return null;
+          });
+    }
+  }
+
+  /** Discards every shard's unwritten counts, returning once each shard has done so. */
+  public void clear() {
+    for (Shard shard : shards) {
+      shard.call(
+          owner -> {
+            owner.counts.clear();
+            return null;
+          });
+    }
+  }
+
+  public int shardCount() {
+    return shards.length;
+  }
+
+  /** Stops the shards; each one drains its ring and writes its counts before it exits. */
+  @PreDestroy
+  public void close() throws InterruptedException {
+    if (!running) {
+      return;
+    }
+    running = false;
+    for (Shard shard : shards) {
+      shard.thread.join();
+    }
+  }
+
+  private Shard shardOf(int rsEventId) {
+    return shards[Math.floorMod(rsEventId, shards.length)];
+  }
+
+  private static final class Cast {
+    final int rsEventId;
+    final int voteNum;
+    final LocalDateTime time;
+
+    Cast(int rsEventId, int voteNum, LocalDateTime time) {
+      this.rsEventId = rsEventId;
+      this.voteNum = voteNum;
+      this.time = time;
+    }
+  }
+
+  /** Runs on the shard thread between two votes, so it may read and change the shard's state. */
+  private static final class Call {
+    final Function<Shard, Object> action;
+    final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    Call(Function<Shard, Object> action) {
+      this.action = action;
+    }
+  }
+
+  private final class Shard {
+    final RingBuffer<Object> ring;
+    final Thread thread;
+    /** Votes per event not yet written; touched only by {@link #thread}. */
+    final Map<Integer, long[]> counts = new HashMap<>();
+    /** Votes per event drained since the rankings were last updated, with the latest time. */
+    final Map<Integer, Cast> batch = new HashMap<>();
+    long nextFlush;
+
+    Shard(int index, int ringSize) {
+      this.ring = new RingBuffer<>(ringSize);
+      this.thread = new Thread(this::run, "vote-shard-" + index);
+      thread.setDaemon(true);
+    }
+
+    /**
+     * Runs {@code action} on the shard thread. Calls still in the ring when the shards close are
+     * answered by the final drain; once the thread is gone, waiting callers fail instead.
+     */
+    @SuppressWarnings("unchecked")
+    <V> V call(Function<Shard, V> action) {
+      Call call = new Call((Function<Shard, Object>) (Function<Shard, ?>) action);
+      checkRunning();
+      while (!ring.offer(call)) {
+        checkRunning();
+        Thread.yield();
+      }
+      while (true) {
+        try {
+          return (V) call.result.get(STOP_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          if (stopped() && call.result.completeExceptionally(new IllegalStateException(STOPPED))) {
+            throw new IllegalStateException(STOPPED);
+          }
+        } catch (ExecutionException e) {
+          throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("interrupted waiting for " + thread.getName(), e);
+        }
+      }
+    }
+
+    /** While closing the thread still drains its ring, so handing it work stays allowed. */
+    boolean stopped() {
+      return !running && !thread.isAlive();
+    }
+
+    void checkRunning() {
+      if (stopped()) {
+        throw new IllegalStateException(STOPPED);
+      }
+    }
+
+    long pending(int rsEventId) {
+      long[] count = counts.get(rsEventId);
+      return count == null ? 0 : count[0];
+    }
+
+    void run() {
+      nextFlush = System.nanoTime() + flushIntervalNanos;
+      while (running) {
+        int drained;
+        try {
+          drained = drain(DRAIN_BATCH);
+          if (System.nanoTime() - nextFlush >= 0) {
+            flush();
+          }
+        } catch (RuntimeException e) {
+          log.error("{} failed to apply drained votes, continuing", thread.getName(), e);
+          drained = 1;
+        }
+        if (drained == 0) {
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+      }
+      try {
+        drain(Integer.MAX_VALUE);
+      } catch (RuntimeException e) {
+        log.error("{} failed to apply drained votes while closing", thread.getName(), e);
+      }
+      flush();
+    }
+
+    /** Handles up to {@code max} items from the ring, then updates the rankings. */
+    int drain(int max) {
+      int drained = 0;
+      for (Object item = ring.poll(); item != null; item = ring.poll()) {
+        if (item instanceof Cast) {
+          take((Cast) item);
+        } else {
+          try {
+            updateRankings();
+          } finally {
+            // the call is already off the ring, so a failed update must not strand its caller
+            answer((Call) item);
+          }
+        }
+        if (++drained == max) {
+          break;
+        }
+      }
+      updateRankings();
+      return drained;
+    }
+
+    void take(Cast cast) {
+      counts.computeIfAbsent(cast.rsEventId, id -> new long[1])[0] += cast.voteNum;
+      Cast merged = batch.get(cast.rsEventId);
+      batch.put(
+          cast.rsEventId,
+          merged == null
+              ? cast
+              : new Cast(cast.rsEventId, merged.voteNum + cast.voteNum, cast.time));
+    }
+
+    /**
+     * One ranking update per event for the votes drained since the last one. Hot scores take the
+     * latest vote time of the batch, which is microseconds from the others.
+     */
+    void updateRankings() {
+      if (batch.isEmpty()) {
+        return;
+      }
+      try {
+        for (Cast cast : batch.values()) {
+          rsEventRanking.addVotes(cast.rsEventId, cast.voteNum);
+          hotRanking.addVotes(cast.rsEventId, cast.voteNum, cast.time);
+        }
+      } finally {
+        // a failed update must not be retried with every later batch
+        batch.clear();
+      }
+    }
+
+    void answer(Call call) {
+      try {
+        call.result.complete(call.action.apply(this));
+      } catch (RuntimeException e) {
+        call.result.completeExceptionally(e);
+      }
+    }
+
+    void flush() {
+      nextFlush = System.nanoTime() + flushIntervalNanos;
+      if (counts.isEmpty()) {
+        return;
+      }
+      Map<Integer, Long> deltas = new HashMap<>();
+      counts.forEach((rsEventId, count) -> deltas.put(rsEventId, count[0]));
+      try {
+        transactionTemplate.execute(
+            status -> {
+              voteBatchRepository.addEventVotes(deltas);
+              return null;
+            });
+        counts.clear();
+      } catch (RuntimeException e) {
+        log.warn("failed to flush {} vote counts, retrying next interval", deltas.size(), e);
+      }
+    }
+  }
+}
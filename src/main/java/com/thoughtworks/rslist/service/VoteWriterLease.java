@@ -0,0 +1,88 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.dto.VoteWriterDto;
+import com.thoughtworks.rslist.repository.VoteWriterRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the vote modes that hold votes in memory to one instance per database. The write-behind
+ * and sharded modes recompute every event's voteNum from the vote table on startup, which already
+ * includes votes still buffered by any other running instance, so those would be counted twice;
+ * the journal mode checks votes against balances only it tracks and shares one checkpoint row.
+ * {@link #acquire} therefore fails startup while another instance holds the
+ * {@code vote_writer} lease, which the holder renews every {@code rs.vote.lease-renew-ms} and
+ * which lapses {@code rs.vote.lease-ms} after a crash.
+ */
+@Slf4j
+@Component
+public class VoteWriterLease {
+  static final int LEASE = 1;
+
+  private final VoteWriterRepository voteWriterRepository;
+  private final long leaseMillis;
+  private final LongSupplier clock;
+  private final String owner = UUID.randomUUID().toString();
+  private volatile boolean held;
+
+  @Autowired
+  public VoteWriterLease(
+      VoteWriterRepository voteWriterRepository,
+      @Value("${rs.vote.lease-ms:30000}") long leaseMillis) {
+    this(voteWriterRepository, leaseMillis, System::currentTimeMillis);
+  }
+
+  VoteWriterLease(VoteWriterRepository voteWriterRepository, long leaseMillis, LongSupplier clock) {
+    this.voteWriterRepository = voteWriterRepository;
+    this.leaseMillis = leaseMillis;
+    this.clock = clock;
+  }
+
+  public void acquire() {
+    if (!voteWriterRepository.existsById(LEASE)) {
+      try {
+        voteWriterRepository.save(VoteWriterDto.builder().id(LEASE).expiresAt(0).build());
+      } catch (DataIntegrityViolationException e) {
+        // seeded concurrently
+      }
+    }
+    if (!claim()) {
+      throw new IllegalStateException(
+          "another instance is buffering vote counts; only one may run in this vote mode");
+    }
+    held = true;
+  }
+
+  public boolean held() {
+    return held;
+  }
+
+  @Scheduled(fixedDelayString = "${rs.vote.lease-renew-ms:10000}")
+  public void renew() {
+    if (held && !claim()) {
+      held = false;
+      log.error("lost the vote writer lease; buffered vote counts may be counted twice");
+    }
+  }
+
+  @PreDestroy
+  public void release() {
+    if (held) {
+      held = false;
+      voteWriterRepository.release(LEASE, owner);
+    }
+  }
+
+  private boolean claim() {
+    long now = clock.getAsLong();
+    return voteWriterRepository.claim(LEASE, owner, now, now + leaseMillis) == 1;
+  }
+}
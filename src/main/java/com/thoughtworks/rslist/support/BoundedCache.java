@@ -0,0 +1,93 @@
+package com.thoughtworks.rslist.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A size-bounded LRU map whose entries also expire {@code ttlMillis} after they were written.
+ * Counts hits, misses (including expired entries) and evictions.
+ */
+public class BoundedCache<K, V> {
+  private final int maxSize;
+  private final long ttlNanos;
+  private final LongSupplier clock;
+  private final LinkedHashMap<K, Entry<V>> entries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public BoundedCache(int maxSize, long ttlMillis) {
+    this(maxSize, ttlMillis, System::nanoTime);
+  }
+
+  BoundedCache(int maxSize, long ttlMillis, LongSupplier clock) {
+    this.maxSize = maxSize;
+    this.ttlNanos = ttlMillis * 1_000_000;
+    this.clock = clock;
+    this.entries =
+        new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() <= BoundedCache.this.maxSize) {
+              return false;
+            }
+            evictions.incrementAndGet();
+            return true;
+          }
+        };
+  }
+
+  /** Returns the cached value, or null if it is absent or expired. */
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null || clock.getAsLong() - entry.writtenAt > ttlNanos) {
+      if (entry != null) {
+        entries.remove(key);
+      }
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return entry.value;
+  }
+
+  public synchronized void put(K key, V value) {
+    entries.put(key, new Entry<>(value, clock.getAsLong()));
+  }
+
+  public synchronized void invalidate(K key) {
+    entries.remove(key);
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  public long evictions() {
+    return evictions.get();
+  }
+
+  private static final class Entry<V> {
+    final V value;
+    final long writtenAt;
+
+    Entry(V value, long writtenAt) {
+      this.value = value;
+      this.writtenAt = writtenAt;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.thoughtworks.rslist.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Applies items submitted by concurrent callers in groups. One thread takes the first waiting
+ * item, keeps collecting until {@code windowMillis} have passed or {@code maxSize} items are in
+ * hand, and passes the group to {@code apply} in a single call, which must return one result per
+ * item in order. Each caller is released with its own result only after that call returns. If the
+ * call fails for the group as a whole, every item is retried on its own so only the item that
+ * causes the failure sees it. Counts groups and items applied.
+ */
+public class GroupCommitter<T, R> {
+  private static final long IDLE_POLL_MILLIS = 100;
+
+  private final Function<List<T>, List<R>> apply;
+  private final long windowNanos;
+  private final int maxSize;
+  private final BlockingQueue<Pending<T, R>> queue = new LinkedBlockingQueue<>();
+  private final AtomicLong groups = new AtomicLong();
+  private final AtomicLong items = new AtomicLong();
+  private final Thread worker;
+  private volatile boolean closed;
+
+  public GroupCommitter(
+      String name, long windowMillis, int maxSize, Function<List<T>, List<R>> apply) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("invalid group size " + maxSize);
+    }
+    this.apply = apply;
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    this.maxSize = maxSize;
+    this.worker = new Thread(this::run, name);
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /** Blocks until the group holding {@code item} has been applied. */
+  public R submit(T item) {
+    if (closed) {
+      throw new IllegalStateException("group committer is closed");
+    }
+    Pending<T, R> pending = new Pending<>(item);
+    queue.add(pending);
+    if (closed && queue.remove(pending)) {
+      // close() may have drained the queue before the item went in
+      throw new IllegalStateException("group committer is closed");
+    }
+    try {
+      return pending.result.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  public long groups() {
+    return groups.get();
+  }
+
+  public long items() {
+    return items.get();
+  }
+
+  /**
+   * Applies what is already queued and stops the worker. Items the worker did not take, because
+   * it was interrupted or they arrived as it exited, fail with {@link IllegalStateException}.
+   */
+  public void close() throws InterruptedException {
+    closed = true;
+    worker.join();
+    for (Pending<T, R> pending = queue.poll(); pending != null; pending = queue.poll()) {
+      pending.result.completeExceptionally(
+          new IllegalStateException("group committer is closed"));
+    }
+  }
+
+  private void run() {
+    List<Pending<T, R>> group = new ArrayList<>();
+    while (!closed || !queue.isEmpty()) {
+      try {
+        Pending<T, R> first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        group.add(first);
+        long deadline = System.nanoTime() + windowNanos;
+        while (group.size() < maxSize) {
+          Pending<T, R> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          group.add(next);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (!group.isEmpty()) {
+        groups.incrementAndGet();
+        items.addAndGet(group.size());
+        applyGroup(group);
+        group.clear();
+      }
+    }
+  }
+
+  private void applyGroup(List<Pending<T, R>> group) {
+    List<T> batch = new ArrayList<>(group.size());
+    group.forEach(pending -> batch.add(pending.item));
+    try {
+      List<R> results = apply.apply(batch);
+      for (int i = 0; i < group.size(); i++) {
+        group.get(i).result.complete(results.get(i));
+      }
+    } catch (RuntimeException | Error e) {
+      if (group.size() == 1) {
+        group.get(0).result.completeExceptionally(e);
+        return;
+      }
+      for (Pending<T, R> pending : group) {
+        applyGroup(Collections.singletonList(pending));
+      }
+    }
+  }
+
+  private static final class Pending<T, R> {
+    final T item;
+    final CompletableFuture<R> result = new CompletableFuture<>();
+
+    Pending(T item) {
+      this.item = item;
+    }
+  }
+}
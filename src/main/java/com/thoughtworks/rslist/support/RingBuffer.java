@@ -0,0 +1,73 @@
+package com.thoughtworks.rslist.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring for many producers and a single consumer, without locks. Each slot carries a
+ * sequence number: producers claim a position with one compare-and-set on the tail and publish
+ * the item by advancing the slot's sequence, and the consumer frees the slot by advancing it one
+ * lap further. {@link #offer} fails instead of waiting when the ring is full.
+ */
+public class RingBuffer<T> {
+  private final int mask;
+  private final AtomicReferenceArray<T> items;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private long head;
+
+  /** {@code capacity} is rounded up to a power of two. */
+  public RingBuffer(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("invalid ring capacity " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.mask = size - 1;
+    this.items = new AtomicReferenceArray<>(size);
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /** Safe from any thread. Returns false if the ring is full. */
+  public boolean offer(T item) {
+    long position;
+    int index;
+    while (true) {
+      position = tail.get();
+      index = (int) position & mask;
+      long lag = sequences.get(index) - position;
+      if (lag < 0) {
+        return false;
+      }
+      if (lag == 0 && tail.compareAndSet(position, position + 1)) {
+        break;
+      }
+    }
+    items.lazySet(index, item);
+    sequences.lazySet(index, position + 1);
+    return true;
+  }
+
+  /** Only the consumer thread may call this. Returns null if nothing is published yet. */
+  public T poll() {
+    int index = (int) head & mask;
+    if (sequences.get(index) != head + 1) {
+      return null;
+    }
+    T item = items.get(index);
+    items.lazySet(index, null);
+    sequences.lazySet(index, head + mask + 1);
+    head++;
+    return item;
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+}
@@ -0,0 +1,38 @@
+package com.thoughtworks.rslist.support;
+
+import com.thoughtworks.rslist.dto.RsEventDto;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Mirrors every persisted change of an {@link RsEventDto} into each {@link RsEventObserver}.
+ * Events deleted with bulk statements bypass the JPA callbacks and are reported through {@link
+ * #removed(int)} instead.
+ */
+@Component
+public class RsEventListener {
+  private final ObjectProvider<RsEventObserver> observers;
+
+  public RsEventListener(ObjectProvider<RsEventObserver> observers) {
+    this.observers = observers;
+  }
+
+  @PostPersist
+  @PostUpdate
+  public void onSave(RsEventDto rsEventDto) {
+    observers.orderedStream().forEach(observer -> observer.put(rsEventDto));
+  }
+
+  @PostRemove
+  public void onRemove(RsEventDto rsEventDto) {
+    removed(rsEventDto.getId());
+  }
+
+  public void removed(int id) {
+    observers.orderedStream().forEach(observer -> observer.remove(id));
+  }
+}
@@ -0,0 +1,13 @@
+package com.thoughtworks.rslist.support;
+
+import com.thoughtworks.rslist.dto.RsEventDto;
+
+/**
+ * An in-memory view of the rs_event table, kept current by {@link RsEventListener}.
+ * Implementations are expected to apply changes only once the surrounding transaction commits.
+ */
+public interface RsEventObserver {
+  void put(RsEventDto rsEventDto);
+
+  void remove(int id);
+}
@@ -0,0 +1,277 @@
+package com.thoughtworks.rslist.api;
+
+import com.thoughtworks.rslist.domain.Change;
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.service.ChangeFeed;
+import com.thoughtworks.rslist.service.RsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ChangeControllerTest {
+  @Autowired MockMvc mockMvc;
+  @Autowired RsService rsService;
+  @Autowired ChangeFeed changeFeed;
+  @Autowired UserRepository userRepository;
+  @Autowired RsEventRepository rsEventRepository;
+  @Autowired PlatformTransactionManager transactionManager;
+  UserDto userDto;
+  RsEventDto rsEventDto;
+
+  @BeforeEach
+  void setUp() {
+    rsService.init();
+    userDto =
+        userRepository.save(
+            UserDto.builder()
+                .userName("idolice")
+                .age(19)
+                .email("a@b.com")
+                .gender("female")
+                .phone("18888888888")
+                .voteNum(10)
+                .build());
+    rsEventDto =
+        rsEventRepository.save(
+            RsEventDto.builder()
+                .keyword("keyword")
+                .eventName("event name")
+                .voteNum(0)
+                .user(userDto)
+                .build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    rsService.init();
+  }
+
+  private Vote change(int voteNum) {
+    return Vote.builder()
+        .userId(userDto.getId())
+        .rsEventId(rsEventDto.getId())
+        .voteNum(voteNum)
+        .time(LocalDateTime.now())
+        .build();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void vote(int voteNum) {
+    rsService.vote(
+        Vote.builder()
+            .userId(userDto.getId())
+            .rsEventId(rsEventDto.getId())
+            .voteNum(voteNum)
+            .time(LocalDateTime.now())
+            .build(),
+        rsEventDto.getId());
+  }
+
+  @Test
+  void shouldReturnChangesAfterCursorInOrder() throws Exception {
+    vote(1);
+    vote(2);
+    changeFeed.relay();
+    long first = changeFeed.read(0, 1).get(0).getSeq();
+
+    MvcResult result =
+        mockMvc
+            .perform(get("/changes").param("after", "0"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].type", is(ChangeFeed.VOTE)))
+        .andExpect(jsonPath("$[0].rsEventId", is(rsEventDto.getId())))
+        .andExpect(jsonPath("$[0].amount", is(1)))
+        .andExpect(jsonPath("$[1].amount", is(2)));
+
+    result =
+        mockMvc
+            .perform(get("/changes").param("after", String.valueOf(first)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].amount", is(2)));
+  }
+
+  @Test
+  void shouldHoldAnEmptyPollUntilAChangeCommits() throws Exception {
+    vote(1);
+    changeFeed.relay();
+    long last = changeFeed.read(0, 1).get(0).getSeq();
+
+    MvcResult result =
+        mockMvc
+            .perform(get("/changes").param("after", String.valueOf(last)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    assertFalse(result.getRequest().getAsyncContext().getResponse().isCommitted());
+
+    vote(3);
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].amount", is(3)));
+  }
+
+  @Test
+  void shouldNumberChangesInCommitOrder() throws Exception {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    CountDownLatch recorded = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<?> slow =
+        executor.submit(
+            () ->
+                transactionTemplate.execute(
+                    status -> {
+                      changeFeed.recordVotes(Collections.singletonList(change(1)));
+                      recorded.countDown();
+                      await(release);
+                      return null;
+                    }));
+    recorded.await();
+    transactionTemplate.execute(
+        status -> {
+          changeFeed.recordVotes(Collections.singletonList(change(2)));
+          return null;
+        });
+    changeFeed.relay();
+    List<Change> first = changeFeed.read(0, 10);
+
+    release.countDown();
+    slow.get();
+    executor.shutdown();
+    changeFeed.relay();
+
+    assertEquals(first.size(), 1);
+    assertEquals(first.get(0).getAmount(), 2);
+    List<Change> next = changeFeed.read(first.get(0).getSeq(), 10);
+    assertEquals(next.size(), 1);
+    assertEquals(next.get(0).getAmount(), 1);
+    assertEquals(next.get(0).getSeq(), first.get(0).getSeq() + 1);
+  }
+
+  @Test
+  void shouldCommitConcurrentVotesWithoutWaitingForEachOther() throws Exception {
+    UserDto other =
+        userRepository.save(
+            UserDto.builder()
+                .userName("other")
+                .age(20)
+                .email("b@c.com")
+                .gender("male")
+                .phone("18888888889")
+                .voteNum(10)
+                .build());
+    RsEventDto otherEvent =
+        rsEventRepository.save(
+            RsEventDto.builder().keyword("keyword").eventName("other").voteNum(0).user(other).build());
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    CountDownLatch committing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    Future<?> held =
+        executor.submit(
+            () ->
+                transactionTemplate.execute(
+                    status -> {
+                      vote(1);
+                      // park on the way into commit, after everything the vote registered
+                      TransactionSynchronizationManager.registerSynchronization(
+                          new TransactionSynchronizationAdapter() {
+                            @Override
+                            public void beforeCommit(boolean readOnly) {
+                              committing.countDown();
+                              await(release);
+                            }
+                          });
+                      return null;
+                    }));
+    committing.await();
+
+    Future<?> concurrent =
+        executor.submit(
+            () ->
+                rsService.vote(
+                    Vote.builder()
+                        .userId(other.getId())
+                        .rsEventId(otherEvent.getId())
+                        .voteNum(2)
+                        .time(LocalDateTime.now())
+                        .build(),
+                    otherEvent.getId()));
+    try {
+      concurrent.get(5, TimeUnit.SECONDS);
+      changeFeed.relay();
+      List<Change> committed = changeFeed.read(0, 10);
+      assertEquals(committed.size(), 1);
+      assertEquals(committed.get(0).getAmount(), 2);
+    } finally {
+      release.countDown();
+      held.get();
+      executor.shutdown();
+    }
+
+    changeFeed.relay();
+    List<Change> changes = changeFeed.read(0, 10);
+    assertEquals(changes.size(), 2);
+    assertEquals(changes.get(0).getAmount(), 2);
+    assertEquals(changes.get(1).getAmount(), 1);
+  }
+
+  @Test
+  void shouldRejectInvalidLimit() throws Exception {
+    mockMvc
+        .perform(get("/changes").param("limit", "0"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error", is("invalid limit")));
+  }
+}
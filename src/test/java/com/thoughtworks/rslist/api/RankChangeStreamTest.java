@@ -0,0 +1,187 @@
+package com.thoughtworks.rslist.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtworks.rslist.domain.RankChange;
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class RankChangeStreamTest {
+  private static final int BUFFER = 4;
+  private static final long SEND_TIMEOUT_MILLIS = 1000;
+
+  @Mock RsEventRanking rsEventRanking;
+  List<Runnable> sends;
+  long now;
+  RankChangeStream stream;
+  Consumer<RankChange> listener;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    sends = new ArrayList<>();
+    stream = start(sends::add);
+  }
+
+  @SuppressWarnings("unchecked")
+  private RankChangeStream start(Executor senders) {
+    RankChangeStream started =
+        new RankChangeStream(
+            rsEventRanking,
+            new ObjectMapper(),
+            senders,
+            BUFFER,
+            60000,
+            SEND_TIMEOUT_MILLIS,
+            () -> now);
+    ArgumentCaptor<Consumer<RankChange>> captor = ArgumentCaptor.forClass(Consumer.class);
+    verify(rsEventRanking, atLeastOnce()).addChangeListener(captor.capture());
+    listener = captor.getValue();
+    return started;
+  }
+
+  @Test
+  void shouldMergeChangesWithinAnIntervalIntoOneBatch() {
+    RecordingEmitter first = (RecordingEmitter) stream.subscribe(new RecordingEmitter());
+    RecordingEmitter second = (RecordingEmitter) stream.subscribe(new RecordingEmitter());
+
+    listener.accept(new RankChange(7, 5, 3, 10));
+    listener.accept(new RankChange(8, 0, 6, 0));
+    listener.accept(new RankChange(7, 3, 1, 12));
+    stream.publish();
+    stream.publish();
+    sends.forEach(Runnable::run);
+
+    for (RecordingEmitter emitter : new RecordingEmitter[] {first, second}) {
+      assertEquals(emitter.events.size(), 1);
+      String event = emitter.events.get(0);
+      assertTrue(event.contains("event:deltas"));
+      assertTrue(
+          event.contains(
+              "[{\"rsEventId\":7,\"oldRank\":5,\"newRank\":1,\"voteNum\":12},"
+                  + "{\"rsEventId\":8,\"oldRank\":0,\"newRank\":6,\"voteNum\":0}]"),
+          event);
+    }
+  }
+
+  @Test
+  void shouldResetASubscriberThatFallsBehind() {
+    RecordingEmitter slow = (RecordingEmitter) stream.subscribe(new RecordingEmitter());
+    for (int i = 1; i <= BUFFER + 2; i++) {
+      listener.accept(new RankChange(i, 0, i, i));
+      stream.publish();
+    }
+    listener.accept(new RankChange(99, 0, 1, 99));
+    stream.publish();
+    sends.forEach(Runnable::run);
+
+    List<String> names =
+        slow.events.stream()
+            .map(event -> event.contains("event:reset") ? "reset" : "deltas")
+            .collect(Collectors.toList());
+    assertEquals(names.get(0), "reset");
+    assertTrue(slow.events.get(slow.events.size() - 1).contains("\"rsEventId\":99"));
+    assertEquals(stream.resets(), 1);
+  }
+
+  @Test
+  void shouldDropSubscribersWhoseConnectionFailed() {
+    stream.subscribe(new FailingEmitter());
+    listener.accept(new RankChange(1, 0, 1, 0));
+    stream.publish();
+    sends.forEach(Runnable::run);
+
+    assertEquals(stream.subscribers(), 0);
+  }
+
+  @Test
+  void shouldDropAStalledSubscriberAndKeepServingTheOthers() throws Exception {
+    ThreadPoolExecutor senders =
+        new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    stream = start(senders);
+    StalledEmitter stalled = (StalledEmitter) stream.subscribe(new StalledEmitter());
+    listener.accept(new RankChange(1, 0, 1, 0));
+    stream.publish();
+    stalled.entered.await();
+    RecordingEmitter healthy = (RecordingEmitter) stream.subscribe(new RecordingEmitter());
+
+    listener.accept(new RankChange(2, 0, 2, 0));
+    now += TimeUnit.MILLISECONDS.toNanos(SEND_TIMEOUT_MILLIS) + 1;
+    stream.publish();
+
+    assertTrue(healthy.received.await(5, TimeUnit.SECONDS));
+    assertTrue(healthy.events.get(0).contains("\"rsEventId\":2"));
+    assertEquals(stream.subscribers(), 1);
+    assertEquals(senders.getMaximumPoolSize(), 2);
+
+    stalled.release.countDown();
+    senders.shutdown();
+    assertTrue(senders.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(senders.getMaximumPoolSize(), 1);
+    assertEquals(stalled.sent.get(), 1);
+  }
+
+  static class RecordingEmitter extends SseEmitter {
+    final List<String> events = new CopyOnWriteArrayList<>();
+    final CountDownLatch received = new CountDownLatch(1);
+
+    @Override
+    public void send(SseEventBuilder builder) {
+      events.add(
+          builder.build().stream()
+              .map(ResponseBodyEmitter.DataWithMediaType::getData)
+              .map(Object::toString)
+              .collect(Collectors.joining()));
+      received.countDown();
+    }
+  }
+
+  /** Blocks its first send, like a client whose TCP window stays full. */
+  static class StalledEmitter extends SseEmitter {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger sent = new AtomicInteger();
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+      sent.incrementAndGet();
+    }
+  }
+
+  static class FailingEmitter extends SseEmitter {
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      throw new IOException("broken pipe");
+    }
+  }
+}
@@ -30,7 +30,10 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -107,6 +110,177 @@ class RsControllerTest {
     mockMvc.perform(get("/rs/2")).andExpect(jsonPath("$.keyword", is("无分类")));
   }
 
+  @Test
+  public void shouldGetOneEventInSameOrderAsList() throws Exception {
+    UserDto save = userRepository.save(userDto);
+    for (int i = 0; i < 3; i++) {
+      RsEventDto rsEventDto =
+              RsEventDto.builder().keyword("无分类").eventName("无名事件").voteNum(3 - i).user(save).build();
+      rsEventRepository.save(rsEventDto);
+    }
+    RsEventDto rsEventDto =
+            RsEventDto.builder().keyword("买的").eventName("叫我第一名").voteNum(0).user(save).build();
+    rsEventDto = rsEventRepository.save(rsEventDto);
+    rsService.buy(Trade.builder().rank(1).amount(10).build(), rsEventDto.getId());
+
+    mockMvc.perform(get("/rs/1")).andExpect(jsonPath("$.eventName", is("叫我第一名")));
+    mockMvc.perform(get("/rs/2")).andExpect(jsonPath("$.voteNum", is(3)));
+    mockMvc.perform(get("/rs/3")).andExpect(jsonPath("$.voteNum", is(2)));
+    mockMvc.perform(get("/rs/4")).andExpect(jsonPath("$.voteNum", is(1)));
+    mockMvc.perform(get("/rs/5")).andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void shouldSearchEventsInLeaderboardOrder() throws Exception {
+    UserDto save = userRepository.save(userDto);
+    for (int i = 0; i < 3; i++) {
+      rsEventRepository.save(
+              RsEventDto.builder().keyword("无分类").eventName("热门事件" + i).voteNum(i).user(save).build());
+    }
+    rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("冷门事件").voteNum(10).user(save).build());
+    RsEventDto traded = rsEventRepository.save(
+            RsEventDto.builder().keyword("买的").eventName("热门第一").voteNum(0).user(save).build());
+    rsService.buy(Trade.builder().rank(1).amount(10).build(), traded.getId());
+
+    mockMvc.perform(get("/rs/search").param("q", "热门"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(4)))
+            .andExpect(jsonPath("$[0].eventName", is("热门第一")))
+            .andExpect(jsonPath("$[1].eventName", is("热门事件2")))
+            .andExpect(jsonPath("$[3].eventName", is("热门事件0")));
+    mockMvc.perform(get("/rs/search").param("q", "热门 事件").param("start", "2").param("end", "3"))
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].eventName", is("热门事件1")))
+            .andExpect(jsonPath("$[1].eventName", is("热门事件0")));
+    mockMvc.perform(get("/rs/search").param("q", " "))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error", is("invalid query")));
+  }
+
+  @Test
+  public void shouldListEventsOfOneKeyword() throws Exception {
+    UserDto save = userRepository.save(userDto);
+    for (int i = 0; i < 3; i++) {
+      rsEventRepository.save(
+              RsEventDto.builder().keyword("体育").eventName("体育" + i).voteNum(i).user(save).build());
+    }
+    rsEventRepository.save(
+            RsEventDto.builder().keyword("娱乐").eventName("娱乐").voteNum(10).user(save).build());
+
+    mockMvc.perform(get("/rs/list").param("keyword", "体育"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(3)))
+            .andExpect(jsonPath("$[0].eventName", is("体育2")))
+            .andExpect(jsonPath("$[2].eventName", is("体育0")));
+    mockMvc.perform(get("/rs/list").param("keyword", "体育").param("start", "2").param("end", "3"))
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].eventName", is("体育1")));
+    mockMvc.perform(get("/rs/list").param("keyword", "体育").param("start", "3").param("end", "4"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error", is("invalid index")));
+  }
+
+  @Test
+  public void shouldListRecentlyVotedEventsFirstInHotMode() throws Exception {
+    UserDto save = userRepository.save(userDto);
+    RsEventDto old = rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("旧事件").voteNum(0).user(save).build());
+    RsEventDto fresh = rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("新事件").voteNum(0).user(save).build());
+    String template = "{\"userId\":%d,\"time\":\"%s\",\"voteNum\":%d}";
+    mockMvc.perform(post("/rs/vote/{id}", old.getId())
+            .content(String.format(template, save.getId(), LocalDateTime.now().minusDays(7), 5))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk());
+    mockMvc.perform(post("/rs/vote/{id}", fresh.getId())
+            .content(String.format(template, save.getId(), LocalDateTime.now(), 1))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk());
+
+    mockMvc.perform(get("/rs/list"))
+            .andExpect(jsonPath("$[0].eventName", is("旧事件")));
+    mockMvc.perform(get("/rs/list").param("mode", "hot"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].eventName", is("新事件")))
+            .andExpect(jsonPath("$[1].voteNum", is(5)));
+    mockMvc.perform(get("/rs/list").param("mode", "hot").param("keyword", "无分类"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error", is("invalid mode")));
+  }
+
+  @Test
+  public void shouldAnswerNotModifiedUntilTheListChanges() throws Exception {
+    UserDto save = userRepository.save(userDto);
+    rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("第一条事件").user(save).build());
+
+    String etag = mockMvc.perform(get("/rs/list"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andReturn().getResponse().getHeader("ETag");
+    mockMvc.perform(get("/rs/list").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+    String gzipEtag = mockMvc.perform(get("/rs/list").header("Accept-Encoding", "gzip, deflate"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Encoding", "gzip"))
+            .andReturn().getResponse().getHeader("ETag");
+    assertEquals(gzipEtag, etag.substring(0, etag.length() - 1) + "-gz\"");
+    mockMvc.perform(get("/rs/list").header("Accept-Encoding", "gzip").header("If-None-Match", gzipEtag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", gzipEtag));
+
+    rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("第二条事件").user(save).build());
+    mockMvc.perform(get("/rs/list").header("If-None-Match", etag + ", " + gzipEtag))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(etag)))
+            .andExpect(jsonPath("$", hasSize(2)));
+  }
+
+  @Test
+  public void shouldOpenAnEventStream() throws Exception {
+    mockMvc.perform(get("/rs/stream").accept(MediaType.TEXT_EVENT_STREAM))
+            .andExpect(request().asyncStarted());
+  }
+
+  @Test
+  public void shouldSuggestEventsByNamePrefixMostVotedFirst() throws Exception {
+    UserDto save = userRepository.save(userDto);
+    RsEventDto first = rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("Spring boot").voteNum(1).user(save).build());
+    rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("spring data").voteNum(2).user(save).build());
+    rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("summer").voteNum(9).user(save).build());
+
+    mockMvc.perform(get("/rs/suggest").param("prefix", "SPR"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].eventName", is("spring data")))
+            .andExpect(jsonPath("$[1].eventName", is("Spring boot")));
+
+    String jsonValue =
+        String.format(
+            "{\"userId\":%d,\"time\":\"%s\",\"voteNum\":2}",
+            save.getId(), LocalDateTime.now().toString());
+    mockMvc
+        .perform(
+            post("/rs/vote/{id}", first.getId())
+                .content(jsonValue)
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(get("/rs/suggest").param("prefix", "spring").param("limit", "1"))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].eventName", is("Spring boot")));
+    mockMvc.perform(get("/rs/suggest").param("prefix", ""))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error", is("invalid prefix")));
+  }
+
   @Test
   public void shouldGetErrorWhenIndexInvalid() throws Exception {
     mockMvc
@@ -206,6 +380,38 @@ class RsControllerTest {
     assertEquals(voteDtos.get(0).getNum(), 1);
   }
 
+  @Test
+  public void shouldVoteInBatch() throws Exception {
+    UserDto save = userRepository.save(userDto);
+    RsEventDto rsEventDto =
+        rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("第一条事件").user(save).build());
+    String time = LocalDateTime.now().toString();
+    String jsonValue =
+        String.format(
+            "[{\"userId\":%1$d,\"rsEventId\":%2$d,\"time\":\"%3$s\",\"voteNum\":6},"
+                + "{\"userId\":%1$d,\"rsEventId\":%2$d,\"time\":\"%3$s\",\"voteNum\":5},"
+                + "{\"userId\":%1$d,\"rsEventId\":%2$d,\"time\":\"%3$s\",\"voteNum\":4},"
+                + "{\"userId\":%1$d,\"rsEventId\":%4$d,\"time\":\"%3$s\",\"voteNum\":1}]",
+            save.getId(), rsEventDto.getId(), time, rsEventDto.getId() + 100);
+
+    mockMvc
+        .perform(post("/rs/vote/batch").content(jsonValue).contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(4)))
+        .andExpect(jsonPath("$[0].success", is(true)))
+        .andExpect(jsonPath("$[1].success", is(false)))
+        .andExpect(jsonPath("$[1].error", is("invalid vote")))
+        .andExpect(jsonPath("$[2].success", is(true)))
+        .andExpect(jsonPath("$[3].success", is(false)))
+        .andExpect(jsonPath("$[3].error", is("invalid rsEventId")));
+
+    assertEquals(userRepository.findById(save.getId()).get().getVoteNum(), 0);
+    assertEquals(rsEventRepository.findById(rsEventDto.getId()).get().getVoteNum(), 10);
+    assertEquals(voteRepository.findAll().size(), 2);
+    mockMvc.perform(get("/rs/1")).andExpect(jsonPath("$.voteNum", is(10)));
+  }
+
   @Test
   public void shouldTradeRankSuccess() throws Exception{
 
@@ -0,0 +1,125 @@
+package com.thoughtworks.rslist.api;
+
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.dto.VoteDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.service.RsService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/** The number of SQL statements a read issues must not grow with the page it returns. */
+@SpringBootTest(
+    properties = {
+      "spring.jpa.properties.hibernate.generate_statistics=true",
+      "rs.list.in-memory=false",
+      // the change feed relay queries on its own schedule and would be counted too
+      "rs.changes.relay-ms=3600000"
+    })
+@AutoConfigureMockMvc
+class StatementCountTest {
+  private static final int RECORDS = 20;
+
+  @Autowired MockMvc mockMvc;
+  @Autowired UserRepository userRepository;
+  @Autowired RsEventRepository rsEventRepository;
+  @Autowired VoteRepository voteRepository;
+  @Autowired RsService rsService;
+  @Autowired EntityManagerFactory entityManagerFactory;
+  UserDto userDto;
+  RsEventDto rsEventDto;
+
+  @BeforeEach
+  void setUp() {
+    rsService.init();
+    userDto =
+        userRepository.save(
+            UserDto.builder()
+                .userName("idolice")
+                .age(19)
+                .email("a@b.com")
+                .gender("female")
+                .phone("18888888888")
+                .voteNum(10)
+                .build());
+    for (int i = 0; i < RECORDS; i++) {
+      UserDto owner =
+          userRepository.save(
+              UserDto.builder()
+                  .userName("user" + i)
+                  .age(19)
+                  .email("a@b.com")
+                  .gender("female")
+                  .phone("18888888888")
+                  .voteNum(10)
+                  .build());
+      rsEventDto =
+          rsEventRepository.save(
+              RsEventDto.builder()
+                  .keyword("keyword")
+                  .eventName("event " + i)
+                  .voteNum(i)
+                  .user(owner)
+                  .build());
+    }
+    for (int i = 0; i < RECORDS; i++) {
+      voteRepository.save(
+          VoteDto.builder()
+              .user(userDto)
+              .rsEvent(rsEventDto)
+              .localDateTime(LocalDateTime.now())
+              .num(1)
+              .build());
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    rsService.init();
+  }
+
+  private long statementsFor(String url, int expectedSize) throws Exception {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    mockMvc
+        .perform(get(url))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(expectedSize)));
+    return statistics.getPrepareStatementCount();
+  }
+
+  @Test
+  void shouldReadVoteRecordsWithOneStatementPerPage() throws Exception {
+    String url =
+        "/voteRecord?userId=" + userDto.getId() + "&rsEventId=" + rsEventDto.getId();
+    assertEquals(statementsFor(url + "&pageSize=2", 2), 1);
+    assertEquals(statementsFor(url + "&pageSize=" + RECORDS, RECORDS), 1);
+    assertEquals(statementsFor(url + "&pageIndex=1&pageSize=" + RECORDS, RECORDS), 1);
+  }
+
+  @Test
+  void shouldReadEventListWithSameStatementCountForAnyWindow() throws Exception {
+    long small = statementsFor("/rs/list?start=1&end=2", 2);
+    long large = statementsFor("/rs/list?start=1&end=" + RECORDS, RECORDS);
+    assertEquals(small, large);
+    assertEquals(statementsFor("/rs/list", RECORDS), small);
+  }
+}
@@ -2,10 +2,16 @@ package com.thoughtworks.rslist.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thoughtworks.rslist.domain.User;
+import com.thoughtworks.rslist.domain.Vote;
 import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.TradeDto;
 import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.dto.VoteDto;
 import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.TradeRepository;
 import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.service.RsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,11 +21,16 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -29,12 +40,14 @@ class UserControllerTest {
   ObjectMapper objectMapper;
   @Autowired UserRepository userRepository;
   @Autowired RsEventRepository rsEventRepository;
+  @Autowired TradeRepository tradeRepository;
+  @Autowired VoteRepository voteRepository;
+  @Autowired RsService rsService;
 
   @BeforeEach
   void setUp() {
     objectMapper = new ObjectMapper();
-    rsEventRepository.deleteAll();
-    userRepository.deleteAll();
+    rsService.init();
   }
 
   @Test
@@ -125,4 +138,98 @@ class UserControllerTest {
     assertEquals(userRepository.findAll().size(), 0);
     assertEquals(rsEventRepository.findAll(Sort.by(Sort.Direction.DESC,"voteNum")).size(), 0);
   }
+
+  @Test
+  public void shouldDeleteUserWithTradesAndVotes() throws Exception {
+    UserDto owner = userRepository.save(UserDto.builder().phone("18888888888").gender("female")
+            .email("a@b.com").age(19).userName("owner").build());
+    UserDto other = userRepository.save(UserDto.builder().phone("18888888888").gender("female")
+            .email("a@b.com").age(19).userName("other").build());
+    RsEventDto ownEvent = rsEventRepository.save(
+            RsEventDto.builder().keyword("keyword").eventName("own").user(owner).build());
+    RsEventDto otherEvent = rsEventRepository.save(
+            RsEventDto.builder().keyword("keyword").eventName("other").user(other).build());
+    tradeRepository.save(TradeDto.builder().rank(1).amount(5).rsEvent(ownEvent).build());
+    voteRepository.save(VoteDto.builder().user(other).rsEvent(ownEvent).num(1)
+            .localDateTime(LocalDateTime.now()).build());
+    voteRepository.save(VoteDto.builder().user(owner).rsEvent(otherEvent).num(1)
+            .localDateTime(LocalDateTime.now()).build());
+
+    mockMvc.perform(delete("/user/{id}", owner.getId())).andExpect(status().isOk());
+
+    assertEquals(userRepository.findAll().size(), 1);
+    assertEquals(rsEventRepository.findAll().size(), 1);
+    assertEquals(tradeRepository.findAll().size(), 0);
+    assertEquals(voteRepository.findAll().size(), 0);
+    assertEquals(rsService.getEventList(null, null).size(), 1);
+    assertEquals(rsService.getEventByIndex(1).getEventName(), "other");
+  }
+
+  @Test
+  public void shouldTakeBackVotesCastOnOtherEventsWhenDeletingUser() throws Exception {
+    UserDto owner = userRepository.save(UserDto.builder().phone("18888888888").gender("female")
+            .email("a@b.com").age(19).userName("owner").voteNum(10).build());
+    UserDto other = userRepository.save(UserDto.builder().phone("18888888888").gender("female")
+            .email("a@b.com").age(19).userName("other").voteNum(10).build());
+    RsEventDto first = rsEventRepository.save(RsEventDto.builder().keyword("keyword")
+            .eventName("first").voteNum(0).user(other).build());
+    RsEventDto second = rsEventRepository.save(RsEventDto.builder().keyword("keyword")
+            .eventName("second").voteNum(0).user(other).build());
+    rsService.vote(Vote.builder().userId(owner.getId()).voteNum(5)
+            .time(LocalDateTime.now()).build(), first.getId());
+    rsService.vote(Vote.builder().userId(other.getId()).voteNum(2)
+            .time(LocalDateTime.now()).build(), first.getId());
+    rsService.vote(Vote.builder().userId(other.getId()).voteNum(3)
+            .time(LocalDateTime.now()).build(), second.getId());
+    assertEquals(rsService.getEventByIndex(1).getEventName(), "first");
+
+    mockMvc.perform(delete("/user/{id}", owner.getId())).andExpect(status().isOk());
+
+    assertEquals(rsEventRepository.findById(first.getId()).get().getVoteNum(), 2);
+    assertEquals(rsEventRepository.findById(second.getId()).get().getVoteNum(), 3);
+    assertEquals(voteRepository.findAll().size(), 2);
+    assertEquals(rsService.getEventByIndex(1).getEventName(), "second");
+    assertEquals(rsService.getEventByIndex(2).getEventName(), "first");
+    assertEquals(rsService.getEventByIndex(2).getVoteNum(), 2);
+    assertEquals(rsService.getEventList(null, "hot", 1, 2).get(0).getEventName(), "second");
+  }
+
+  @Test
+  public void shouldNotDeleteUnknownUser() throws Exception {
+    mockMvc.perform(delete("/user/{id}", 1)).andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error", is("invalid userId")));
+  }
+
+  @Test
+  public void shouldRegisterUsersInBatch() throws Exception {
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < 120; i++) {
+      users.add(new User("user" + i, "female", 19, "a@b.com", "18888888888"));
+    }
+    mockMvc
+        .perform(
+            post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(users)))
+        .andExpect(status().isOk());
+    List<UserDto> all = userRepository.findAll();
+    assertEquals(all.size(), 120);
+    assertEquals(all.stream().map(UserDto::getId).distinct().count(), 120);
+  }
+
+  @Test
+  public void shouldNotRegisterAnyUserWhenOneInBatchIsInvalid() throws Exception {
+    List<User> users =
+        Arrays.asList(
+            new User("idolice", "female", 19, "a@b.com", "18888888888"),
+            new User("idolice", "female", 17, "a@b.com", "18888888888"));
+    mockMvc
+        .perform(
+            post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(users)))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error", is("invalid user")));
+    assertEquals(userRepository.findAll().size(), 0);
+  }
 }
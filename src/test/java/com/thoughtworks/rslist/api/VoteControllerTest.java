@@ -13,13 +13,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -107,4 +110,89 @@ class VoteControllerTest {
 
 
     }
+
+    @Test
+    public void shouldWalkVoteRecordWithCursor() throws Exception {
+      LocalDateTime time = LocalDateTime.now();
+      for (int num = 1; num <= 6; num++) {
+        voteRepository.save(VoteDto.builder().user(userDto).rsEvent(rsEventDto)
+                .localDateTime(time.plusSeconds(num % 3)).num(num).build());
+      }
+
+      MvcResult first = mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("pageSize", "3"))
+              .andExpect(status().isOk())
+              .andExpect(jsonPath("$", hasSize(3)))
+              .andExpect(jsonPath("$[0].voteNum", is(5)))
+              .andExpect(jsonPath("$[1].voteNum", is(3)))
+              .andExpect(jsonPath("$[2].voteNum", is(6)))
+              .andReturn();
+      String cursor = first.getResponse().getHeader(VoteController.NEXT_CURSOR_HEADER);
+
+      MvcResult second = mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("pageSize", "3")
+              .param("cursor", cursor))
+              .andExpect(status().isOk())
+              .andExpect(jsonPath("$", hasSize(3)))
+              .andExpect(jsonPath("$[0].voteNum", is(1)))
+              .andExpect(jsonPath("$[1].voteNum", is(4)))
+              .andExpect(jsonPath("$[2].voteNum", is(2)))
+              .andReturn();
+      cursor = second.getResponse().getHeader(VoteController.NEXT_CURSOR_HEADER);
+
+      mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("pageSize", "3")
+              .param("cursor", cursor))
+              .andExpect(status().isOk())
+              .andExpect(jsonPath("$", hasSize(1)))
+              .andExpect(jsonPath("$[0].voteNum", is(5)))
+              .andExpect(header().doesNotExist(VoteController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void shouldWalkPastVotesWithoutTime() throws Exception {
+      for (int num = 1; num <= 3; num++) {
+        voteRepository.save(VoteDto.builder().user(userDto).rsEvent(rsEventDto).num(num).build());
+      }
+      voteRepository.save(VoteDto.builder().user(userDto).rsEvent(rsEventDto)
+              .localDateTime(LocalDateTime.now().plusSeconds(1)).num(4).build());
+
+      MvcResult first = mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("pageSize", "2"))
+              .andExpect(status().isOk())
+              .andExpect(jsonPath("$[0].voteNum", is(1)))
+              .andExpect(jsonPath("$[1].voteNum", is(2)))
+              .andReturn();
+      String cursor = first.getResponse().getHeader(VoteController.NEXT_CURSOR_HEADER);
+
+      MvcResult second = mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("pageSize", "2")
+              .param("cursor", cursor))
+              .andExpect(status().isOk())
+              .andExpect(jsonPath("$", hasSize(2)))
+              .andExpect(jsonPath("$[0].voteNum", is(3)))
+              .andExpect(jsonPath("$[1].voteNum", is(5)))
+              .andReturn();
+      cursor = second.getResponse().getHeader(VoteController.NEXT_CURSOR_HEADER);
+
+      mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("pageSize", "2")
+              .param("cursor", cursor))
+              .andExpect(status().isOk())
+              .andExpect(jsonPath("$", hasSize(1)))
+              .andExpect(jsonPath("$[0].voteNum", is(4)))
+              .andExpect(header().doesNotExist(VoteController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void shouldRejectInvalidVoteRecordPage() throws Exception {
+      mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("pageSize", "101"))
+              .andExpect(status().isBadRequest())
+              .andExpect(jsonPath("$.error", is("invalid page size")));
+      mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("cursor", "not a cursor"))
+              .andExpect(status().isBadRequest())
+              .andExpect(jsonPath("$.error", is("invalid cursor")));
+    }
 }
@@ -0,0 +1,126 @@
+package com.thoughtworks.rslist.ranking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AutocompleteTest {
+  Autocomplete autocomplete;
+
+  @BeforeEach
+  void setUp() {
+    autocomplete = new Autocomplete();
+  }
+
+  @Test
+  void shouldMatchPrefixIgnoringCaseMostVotedFirst() {
+    autocomplete.reset(
+        Arrays.asList(entry(1, "Spring", 3), entry(2, "spring boot", 5), entry(3, "summer", 9)));
+    autocomplete.replace(null, entry(4, "SPRINGS", 5));
+
+    assertEquals(autocomplete.suggest("spr", 10), Arrays.asList(2, 4, 1));
+    assertEquals(autocomplete.suggest("spr", 1), Collections.singletonList(2));
+    assertEquals(autocomplete.suggest("x", 10), Collections.emptyList());
+  }
+
+  @Test
+  void shouldApplyVotesRenamesAndRemovals() {
+    autocomplete.reset(Arrays.asList(entry(1, "alpha", 1), entry(2, "alps", 2)));
+    autocomplete.replace(null, entry(3, "altar", 0));
+
+    autocomplete.addVotes("alpha", 1, 5);
+    autocomplete.addVotes("altar", 3, 4);
+    assertEquals(autocomplete.suggest("al", 10), Arrays.asList(1, 3, 2));
+
+    autocomplete.replace(entry(1, "alpha", 6), entry(1, "beta", 6));
+    autocomplete.remove(entry(3, "altar", 4));
+    assertEquals(autocomplete.suggest("al", 10), Collections.singletonList(2));
+    assertEquals(autocomplete.suggest("b", 10), Collections.singletonList(1));
+    assertEquals(autocomplete.size(), 2);
+  }
+
+  @Test
+  void shouldMatchBruteForceAcrossCompactions() {
+    Random random = new Random(42);
+    Map<Integer, RankEntry> expected = new HashMap<>();
+    List<RankEntry> initial = new ArrayList<>();
+    for (int id = 1; id <= 20000; id++) {
+      RankEntry entry = entry(id, randomName(random), random.nextInt(1000));
+      initial.add(entry);
+      expected.put(id, entry);
+    }
+    autocomplete.reset(initial);
+    for (int i = 0; i < 20000; i++) {
+      int id = 1 + random.nextInt(25000);
+      RankEntry old = expected.get(id);
+      int action = random.nextInt(3);
+      if (action == 0) {
+        RankEntry entry = entry(id, randomName(random), random.nextInt(1000));
+        autocomplete.replace(old, entry);
+        expected.put(id, entry);
+      } else if (action == 1 && old != null) {
+        autocomplete.addVotes(old.getEventName(), id, 7);
+        expected.put(id, old.toBuilder().voteNum(old.getVoteNum() + 7).build());
+      } else if (old != null) {
+        autocomplete.remove(old);
+        expected.remove(id);
+      }
+    }
+
+    for (String prefix : Arrays.asList("a", "B", "ab", "cAb", "abcd")) {
+      List<Integer> bruteForce =
+          expected.values().stream()
+              .filter(entry -> entry.getEventName().toLowerCase().startsWith(prefix.toLowerCase()))
+              .sorted(
+                  Comparator.comparingInt(RankEntry::getVoteNum)
+                      .reversed()
+                      .thenComparingInt(RankEntry::getId))
+              .limit(10)
+              .map(RankEntry::getId)
+              .collect(Collectors.toList());
+      assertEquals(autocomplete.suggest(prefix, 10), bruteForce, prefix);
+    }
+    assertEquals(autocomplete.size(), expected.size());
+  }
+
+  @Test
+  void shouldStayWithinSixteenBytesPerEventAtOneMillionEvents() {
+    int events = 1_000_000;
+    List<RankEntry> entries = new ArrayList<>(events);
+    for (int id = 1; id <= events; id++) {
+      entries.add(entry(id, "event " + id, id % 997));
+    }
+    autocomplete.reset(entries);
+
+    assertEquals(autocomplete.size(), entries.size());
+    assertEquals(autocomplete.suggest("event 99999", 3), Arrays.asList(999990, 99999, 999999));
+    // names are shared with the entries, so the index itself holds one reference and two ints
+    long bytes = autocomplete.indexBytes();
+    assertTrue(bytes < 16L * events, "index used " + bytes + " bytes");
+  }
+
+  private static String randomName(Random random) {
+    char[] name = new char[1 + random.nextInt(6)];
+    for (int i = 0; i < name.length; i++) {
+      char c = (char) ('a' + random.nextInt(4));
+      name[i] = random.nextBoolean() ? c : Character.toUpperCase(c);
+    }
+    return new String(name);
+  }
+
+  private static RankEntry entry(int id, String eventName, int voteNum) {
+    return RankEntry.builder().id(id).eventName(eventName).voteNum(voteNum).build();
+  }
+}
@@ -0,0 +1,137 @@
+package com.thoughtworks.rslist.ranking;
+
+import com.thoughtworks.rslist.domain.VoteRecord;
+import com.thoughtworks.rslist.repository.OffsetLimitRequest;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class HotRankingTest {
+  private static final long HOUR = 3600_000L;
+  private static final long DAY = 24 * HOUR;
+  private static final LocalDateTime START = LocalDateTime.of(2020, 6, 1, 12, 0);
+
+  @Mock RsEventRepository rsEventRepository;
+  @Mock VoteRepository voteRepository;
+  long now;
+  HotRanking hotRanking;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    now = millis(START);
+    when(rsEventRepository.findAllRankEntries())
+        .thenReturn(Arrays.asList(entry(1, 10), entry(2, 2), entry(3, 0)));
+    when(voteRepository.findRecordsAfterId(anyInt(), any(OffsetLimitRequest.class)))
+        .thenReturn(Collections.emptyList());
+    hotRanking = new HotRanking(rsEventRepository, voteRepository, DAY, HOUR, new LeaderboardVersion(), () -> now);
+  }
+
+  @Test
+  void shouldRankRecentVotesAboveOlderLifetimeVotes() {
+    hotRanking.rebuild();
+    hotRanking.addVotes(1, 10, START.minusDays(3));
+    hotRanking.addVotes(2, 2, START);
+
+    assertEquals(ids(hotRanking.slice(1, 3)), Arrays.asList(2, 1, 3));
+    assertEquals(hotRanking.slice(2, 2).get(0).getVoteNum(), 20);
+    assertEquals(hotRanking.score(1) / hotRanking.score(2), 10.0 / 8 / 2, 1e-9);
+  }
+
+  @Test
+  void shouldRebuildTheSameScoresFromTheVoteTable() {
+    when(voteRepository.findRecordsAfterId(eq(0), any(OffsetLimitRequest.class)))
+        .thenReturn(
+            Arrays.asList(record(7, 1, 10, START.minusDays(3)), record(9, 2, 2, START.minusHours(1))));
+    when(voteRepository.findRecordsAfterId(eq(9), any(OffsetLimitRequest.class)))
+        .thenReturn(Collections.emptyList());
+    hotRanking.rebuild();
+    double rebuilt = hotRanking.score(1);
+
+    HotRanking incremental = new HotRanking(rsEventRepository, voteRepository, DAY, HOUR, new LeaderboardVersion(), () -> now);
+    when(voteRepository.findRecordsAfterId(eq(0), any(OffsetLimitRequest.class)))
+        .thenReturn(Collections.emptyList());
+    incremental.rebuild();
+    incremental.addVotes(1, 10, START.minusDays(3));
+
+    assertEquals(rebuilt, incremental.score(1), 1e-12);
+    assertEquals(ids(hotRanking.slice(1, 3)), Arrays.asList(2, 1, 3));
+    assertEquals(hotRanking.slice(2, 2).get(0).getVoteNum(), 10);
+  }
+
+  @Test
+  void shouldKeepOrderWhenTheLandmarkMovesForward() {
+    hotRanking.rebuild();
+    hotRanking.addVotes(1, 3, START);
+    hotRanking.addVotes(2, 2, START);
+    now += 100 * DAY;
+    hotRanking.addVotes(3, 1, START.plusDays(100));
+
+    assertEquals(ids(hotRanking.slice(1, 3)), Arrays.asList(3, 1, 2));
+    assertEquals(hotRanking.score(3), 1.0, 1e-12);
+    assertEquals(hotRanking.score(1) / hotRanking.score(2), 1.5, 1e-9);
+  }
+
+  @Test
+  void shouldCountFutureVotesAsNow() {
+    hotRanking.rebuild();
+    hotRanking.addVotes(1, 1, START.plusYears(1));
+    hotRanking.addVotes(2, 1, START);
+
+    assertEquals(hotRanking.score(1), hotRanking.score(2), 1e-12);
+    assertTrue(Double.isFinite(hotRanking.score(1)));
+  }
+
+  @Test
+  void shouldReadVoteTimesInTheSystemDefaultZone() {
+    TimeZone original = TimeZone.getDefault();
+    TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+    try {
+      now = millis(START);
+      HotRanking shanghai =
+          new HotRanking(
+              rsEventRepository, voteRepository, DAY, HOUR, new LeaderboardVersion(), () -> now);
+      shanghai.rebuild();
+      shanghai.addVotes(1, 1, START.minusHours(6));
+      shanghai.addVotes(2, 1, START);
+
+      assertEquals(shanghai.score(1) / shanghai.score(2), Math.pow(2, -6.0 / 24), 1e-9);
+    } finally {
+      TimeZone.setDefault(original);
+    }
+  }
+
+  private static long millis(LocalDateTime time) {
+    return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+
+  private static List<Integer> ids(List<RankEntry> entries) {
+    return entries.stream().map(RankEntry::getId).collect(Collectors.toList());
+  }
+
+  private static VoteRecord record(int id, int rsEventId, int voteNum, LocalDateTime time) {
+    return new VoteRecord(id, 1, rsEventId, time, voteNum);
+  }
+
+  private static RankEntry entry(int id, int voteNum) {
+    return RankEntry.builder().id(id).eventName("event " + id).keyword("keyword").voteNum(voteNum).build();
+  }
+}
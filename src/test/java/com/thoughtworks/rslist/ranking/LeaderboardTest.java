@@ -0,0 +1,170 @@
+package com.thoughtworks.rslist.ranking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaderboardTest {
+  Leaderboard leaderboard;
+
+  @BeforeEach
+  void setUp() {
+    leaderboard = new Leaderboard();
+  }
+
+  @Test
+  void shouldOrderByVoteNumThenId() {
+    leaderboard.put(entry(1, 3, 0));
+    leaderboard.put(entry(2, 5, 0));
+    leaderboard.put(entry(3, 3, 0));
+
+    assertEquals(ids(leaderboard.slice(1, 3)), ids(2, 1, 3));
+  }
+
+  @Test
+  void shouldPutTradedEventInItsRank() {
+    for (int i = 1; i <= 5; i++) {
+      leaderboard.put(entry(i, 10 - i, 0));
+    }
+    leaderboard.put(entry(6, 1, 1));
+    leaderboard.put(entry(7, 0, 3));
+
+    assertEquals(ids(leaderboard.slice(1, 7)), ids(6, 1, 7, 2, 3, 4, 5));
+    assertEquals(ids(leaderboard.slice(2, 4)), ids(1, 7, 2));
+    assertEquals(ids(leaderboard.slice(5, 5)), ids(3));
+  }
+
+  @Test
+  void shouldAppendTradedRankBeyondListSize() {
+    leaderboard.put(entry(1, 5, 0));
+    leaderboard.put(entry(2, 0, 8));
+
+    assertEquals(ids(leaderboard.slice(1, 2)), ids(1, 2));
+  }
+
+  @Test
+  void shouldStopMergingWhenTheVotedPageComesBackShort() {
+    List<RankEntry> traded = Collections.singletonList(entry(9, 0, 2));
+
+    List<RankEntry> merged =
+        Leaderboard.merge(
+            traded, 3, 1, 4, (offset, limit) -> Collections.singletonList(entry(1, 5, 0)));
+
+    assertEquals(ids(merged), ids(1, 9));
+  }
+
+  @Test
+  void shouldMoveEntryWhenUpdated() {
+    leaderboard.put(entry(1, 5, 0));
+    leaderboard.put(entry(2, 3, 0));
+    leaderboard.put(entry(2, 7, 0));
+    leaderboard.remove(1);
+    leaderboard.put(entry(3, 1, 0));
+
+    assertEquals(leaderboard.size(), 2);
+    assertEquals(ids(leaderboard.slice(1, 2)), ids(2, 3));
+  }
+
+  @Test
+  void shouldMatchFullSortForRandomUpdates() {
+    Random random = new Random(42);
+    Map<Integer, RankEntry> expected = new HashMap<>();
+    for (int i = 0; i < 5000; i++) {
+      int id = random.nextInt(300);
+      if (random.nextInt(5) == 0) {
+        leaderboard.remove(id);
+        expected.remove(id);
+      } else {
+        RankEntry entry = entry(id, random.nextInt(50), 0);
+        leaderboard.put(entry);
+        expected.put(id, entry);
+      }
+    }
+    List<Integer> sorted =
+        expected.values().stream()
+            .sorted(
+                Comparator.comparingInt(RankEntry::getVoteNum)
+                    .reversed()
+                    .thenComparingInt(RankEntry::getId))
+            .map(RankEntry::getId)
+            .collect(Collectors.toList());
+
+    assertEquals(ids(leaderboard.slice(1, leaderboard.size())), sorted);
+    for (int from = 1; from <= sorted.size(); from += 17) {
+      int to = Math.min(sorted.size(), from + 9);
+      assertEquals(ids(leaderboard.slice(from, to)), sorted.subList(from - 1, to));
+    }
+    assertTrue(leaderboard.slice(sorted.size() + 1, sorted.size() + 5).isEmpty());
+  }
+
+  @Test
+  void shouldSelectSubsetInBoardOrderByLookupAndByScan() {
+    Random random = new Random(7);
+    for (int id = 1; id <= 2000; id++) {
+      int tradeRank = random.nextInt(50) == 0 ? 1 + random.nextInt(2100) : 0;
+      leaderboard.put(entry(id, random.nextInt(100), tradeRank));
+    }
+    List<Integer> board = ids(leaderboard.slice(1, leaderboard.size()));
+    for (int size : new int[] {5, 100, 1500}) {
+      Set<Integer> subset = new HashSet<>();
+      while (subset.size() < size) {
+        subset.add(1 + random.nextInt(2000));
+      }
+      List<Integer> expected =
+          board.stream().filter(subset::contains).collect(Collectors.toList());
+
+      assertEquals(ids(leaderboard.select(subset, 1, size)), expected);
+      assertEquals(ids(leaderboard.select(subset, 2, 4)), expected.subList(1, 4));
+      assertTrue(leaderboard.select(subset, size + 1, size + 5).isEmpty());
+    }
+  }
+
+  @Test
+  void shouldReportThePositionEachEntryIsListedAt() {
+    Random random = new Random(11);
+    for (int id = 1; id <= 500; id++) {
+      int tradeRank = random.nextInt(20) == 0 ? 1 + random.nextInt(600) : 0;
+      leaderboard.put(entry(id, random.nextInt(50), tradeRank));
+    }
+    List<Integer> board = ids(leaderboard.slice(1, leaderboard.size()));
+    for (int position = 1; position <= board.size(); position++) {
+      assertEquals(leaderboard.position(board.get(position - 1)), position);
+    }
+    assertEquals(leaderboard.position(501), 0);
+  }
+
+  private static RankEntry entry(int id, int voteNum, int tradeRank) {
+    return RankEntry.builder()
+        .id(id)
+        .eventName("event " + id)
+        .keyword("keyword")
+        .voteNum(voteNum)
+        .tradeRank(tradeRank)
+        .build();
+  }
+
+  private static List<Integer> ids(List<RankEntry> entries) {
+    return entries.stream().map(RankEntry::getId).collect(Collectors.toList());
+  }
+
+  private static List<Integer> ids(Integer... ids) {
+    List<Integer> result = new ArrayList<>();
+    for (Integer id : ids) {
+      result.add(id);
+    }
+    return result;
+  }
+}
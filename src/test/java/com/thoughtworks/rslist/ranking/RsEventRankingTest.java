@@ -0,0 +1,147 @@
+package com.thoughtworks.rslist.ranking;
+
+import com.thoughtworks.rslist.domain.RankChange;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.repository.OffsetLimitRequest;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class RsEventRankingTest {
+  @Mock RsEventRepository rsEventRepository;
+  RsEventRanking rsEventRanking;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    rsEventRanking = new RsEventRanking(rsEventRepository, false, new LeaderboardVersion());
+    rsEventRanking.rebuild();
+  }
+
+  @Test
+  void shouldReadOnlyRequestedWindowFromDatabase() {
+    when(rsEventRepository.findTradedRankEntries())
+        .thenReturn(Arrays.asList(event(100, 0, 1), event(101, 0, 12)));
+    when(rsEventRepository.countByTradeRank(0)).thenReturn(1000L);
+    when(rsEventRepository.findVotedRankEntries(any(OffsetLimitRequest.class)))
+        .thenReturn(
+            Arrays.asList(event(10, 90, 0), event(11, 89, 0), event(12, 88, 0), event(13, 87, 0)));
+
+    List<RankEntry> slice = rsEventRanking.slice(9, 13);
+
+    ArgumentCaptor<OffsetLimitRequest> page = ArgumentCaptor.forClass(OffsetLimitRequest.class);
+    verify(rsEventRepository).findVotedRankEntries(page.capture());
+    assertEquals(page.getValue().getOffset(), 7);
+    assertEquals(page.getValue().getPageSize(), 4);
+    verify(rsEventRepository, never()).findAllRankEntries();
+    assertEquals(
+        slice.stream().map(RankEntry::getId).collect(Collectors.toList()),
+        Arrays.asList(10, 11, 12, 101, 13));
+  }
+
+  @Test
+  void shouldNotQueryVotedEventsWhenWindowIsAllTraded() {
+    when(rsEventRepository.findTradedRankEntries())
+        .thenReturn(Collections.singletonList(event(100, 0, 1)));
+    when(rsEventRepository.countByTradeRank(0)).thenReturn(5L);
+
+    List<RankEntry> slice = rsEventRanking.slice(1, 1);
+
+    verify(rsEventRepository, never()).findVotedRankEntries(any(OffsetLimitRequest.class));
+    assertEquals(slice.get(0).getId(), 100);
+  }
+
+  @Test
+  void shouldEscapeLikeWildcardsWhenSuggestingFromDatabase() {
+    rsEventRanking.suggest("50%_off!", 5);
+
+    ArgumentCaptor<OffsetLimitRequest> page = ArgumentCaptor.forClass(OffsetLimitRequest.class);
+    verify(rsEventRepository).findRankEntriesByNamePrefix(eq("50!%!_off!!%"), page.capture());
+    assertEquals(page.getValue().getPageSize(), 5);
+  }
+
+  @Test
+  void shouldKeepKeywordPartitionsInStepWithTheGlobalBoard() {
+    when(rsEventRepository.findAllRankEntries())
+        .thenReturn(Arrays.asList(event(1, 5, 0, "a"), event(2, 3, 0, "b"), event(3, 1, 0, "a")));
+    RsEventRanking inMemory = new RsEventRanking(rsEventRepository, true, new LeaderboardVersion());
+    inMemory.rebuild();
+
+    inMemory.addVotes(3, 10);
+    inMemory.put(RsEventDto.builder().id(2).eventName("event 2").keyword("a").voteNum(3).build());
+    inMemory.setTradeRank(1, 1);
+    inMemory.remove(3);
+
+    assertEquals(
+        inMemory.slice("a", 1, 10).stream().map(RankEntry::getId).collect(Collectors.toList()),
+        Arrays.asList(1, 2));
+    assertEquals(inMemory.slice("a", 1, 1).get(0).getTradeRank(), 1);
+    assertEquals(inMemory.slice("b", 1, 10), Collections.emptyList());
+    verify(rsEventRepository, never()).findVotedRankEntriesByKeyword(any(), any());
+  }
+
+  @Test
+  void shouldReportHowEachChangedEventMoved() {
+    when(rsEventRepository.findAllRankEntries())
+        .thenReturn(Arrays.asList(event(1, 5, 0), event(2, 3, 0), event(3, 1, 0)));
+    RsEventRanking inMemory = new RsEventRanking(rsEventRepository, true, new LeaderboardVersion());
+    inMemory.rebuild();
+    List<RankChange> changes = new ArrayList<>();
+    inMemory.addChangeListener(changes::add);
+
+    inMemory.addVotes(3, 10);
+    inMemory.remove(2);
+    inMemory.put(RsEventDto.builder().id(4).eventName("event 4").keyword("k").voteNum(0).build());
+
+    assertEquals(
+        changes,
+        Arrays.asList(
+            new RankChange(3, 3, 1, 11), new RankChange(2, 3, 0, 3), new RankChange(4, 0, 3, 0)));
+  }
+
+  @Test
+  void shouldReadKeywordWindowFromDatabase() {
+    when(rsEventRepository.findTradedRankEntriesByKeyword("a"))
+        .thenReturn(Collections.singletonList(event(100, 0, 1, "a")));
+    when(rsEventRepository.countByKeywordAndTradeRank("a", 0)).thenReturn(2L);
+    when(rsEventRepository.findVotedRankEntriesByKeyword(eq("a"), any(OffsetLimitRequest.class)))
+        .thenReturn(Arrays.asList(event(10, 9, 0, "a"), event(11, 8, 0, "a")));
+
+    List<RankEntry> slice = rsEventRanking.slice("a", 1, 5);
+
+    assertEquals(
+        slice.stream().map(RankEntry::getId).collect(Collectors.toList()),
+        Arrays.asList(100, 10, 11));
+    verify(rsEventRepository, never()).findTradedRankEntries();
+  }
+
+  private static RankEntry event(int id, int voteNum, int tradeRank) {
+    return event(id, voteNum, tradeRank, "keyword");
+  }
+
+  private static RankEntry event(int id, int voteNum, int tradeRank, String keyword) {
+    return RankEntry.builder()
+        .id(id)
+        .eventName("event " + id)
+        .keyword(keyword)
+        .voteNum(voteNum)
+        .tradeRank(tradeRank)
+        .build();
+  }
+}
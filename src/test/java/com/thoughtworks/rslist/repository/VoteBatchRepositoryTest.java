@@ -0,0 +1,71 @@
+package com.thoughtworks.rslist.repository;
+
+import com.thoughtworks.rslist.domain.Vote;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class VoteBatchRepositoryTest {
+  @Mock JdbcTemplate jdbcTemplate;
+  VoteBatchRepository voteBatchRepository;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    voteBatchRepository = new VoteBatchRepository(jdbcTemplate);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldSpendInUserOrderAndReportInRequestOrder() {
+    when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] {1, 0, 1, 1});
+
+    int[] spent =
+        voteBatchRepository.spendUserVotes(
+            Arrays.asList(vote(7, 1), vote(3, 2), vote(7, 3), vote(3, 4)));
+
+    ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate).batchUpdate(anyString(), args.capture());
+    assertEquals(
+        args.getValue().stream().map(row -> row[0]).collect(Collectors.toList()),
+        Arrays.asList(2, 4, 1, 3));
+    assertArrayEquals(spent, new int[] {1, 1, 1, 0});
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldAddEventVotesInIdOrder() {
+    Map<Integer, Integer> deltas = new HashMap<>();
+    deltas.put(1 << 20, 1);
+    deltas.put(5, 2);
+    deltas.put(17, 3);
+
+    voteBatchRepository.addEventVotes(deltas);
+
+    ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate).batchUpdate(anyString(), args.capture());
+    assertEquals(
+        args.getValue().stream().map(row -> row[1]).collect(Collectors.toList()),
+        Arrays.asList(5, 17, 1 << 20));
+  }
+
+  private static Vote vote(int userId, int voteNum) {
+    return Vote.builder().userId(userId).rsEventId(1).voteNum(voteNum).build();
+  }
+}
@@ -0,0 +1,64 @@
+package com.thoughtworks.rslist.search;
+
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.ranking.RankEntry;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class SearchIndexTest {
+  @Mock RsEventRepository rsEventRepository;
+  SearchIndex searchIndex;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    when(rsEventRepository.findAllRankEntries())
+        .thenReturn(
+            Arrays.asList(
+                entry(1, "热门事件", "无分类"),
+                entry(2, "Spring Boot released", "tech"),
+                entry(3, "热搜 boot camp", "体育")));
+    searchIndex = new SearchIndex(rsEventRepository);
+    searchIndex.rebuild();
+  }
+
+  @Test
+  void shouldMatchCjkPhrasesAndSingleCharacters() {
+    assertEquals(searchIndex.search("热门"), Collections.singleton(1));
+    assertEquals(searchIndex.search("热"), new HashSet<>(Arrays.asList(1, 3)));
+    assertEquals(searchIndex.search("分类"), Collections.singleton(1));
+    assertEquals(searchIndex.search("门热"), Collections.emptySet());
+  }
+
+  @Test
+  void shouldMatchEveryWordCaseInsensitively() {
+    assertEquals(searchIndex.search("BOOT"), new HashSet<>(Arrays.asList(2, 3)));
+    assertEquals(searchIndex.search("boot tech"), Collections.singleton(2));
+    assertEquals(searchIndex.search("boot 热搜"), Collections.singleton(3));
+    assertEquals(searchIndex.search("  ,. "), Collections.emptySet());
+  }
+
+  @Test
+  void shouldReindexOnPutAndForgetOnRemove() {
+    searchIndex.put(RsEventDto.builder().id(2).eventName("Gradle released").keyword("tech").build());
+    searchIndex.remove(3);
+
+    assertEquals(searchIndex.search("boot"), Collections.emptySet());
+    assertEquals(searchIndex.search("released tech"), Collections.singleton(2));
+    assertEquals(searchIndex.search("gradle"), Collections.singleton(2));
+  }
+
+  private static RankEntry entry(int id, String eventName, String keyword) {
+    return RankEntry.builder().id(id).eventName(eventName).keyword(keyword).build();
+  }
+}
@@ -0,0 +1,101 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.dto.RankSlotDto;
+import com.thoughtworks.rslist.repository.RankSlotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class AuctionBookTest {
+  @Mock RankSlotRepository rankSlotRepository;
+  AuctionBook auctionBook;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    auctionBook = new AuctionBook(rankSlotRepository);
+  }
+
+  @Test
+  void shouldOnlyRaiseTheWinningBid() {
+    auctionBook.raise(1, 5);
+    auctionBook.raise(1, 3);
+    assertEquals(auctionBook.amount(1), 5);
+    auctionBook.raise(1, 8);
+    assertEquals(auctionBook.amount(1), 8);
+    assertEquals(auctionBook.amount(2), 0);
+  }
+
+  @Test
+  void shouldRebuildFromRankSlots() {
+    when(rankSlotRepository.findAll())
+        .thenReturn(
+            Arrays.asList(
+                RankSlotDto.builder().rank(1).amount(7).build(),
+                RankSlotDto.builder().rank(2000).amount(4).build()));
+
+    auctionBook.rebuild();
+
+    assertEquals(auctionBook.amount(1), 7);
+    assertEquals(auctionBook.amount(2000), 4);
+  }
+
+  @Test
+  void shouldRejectRankOutOfRange() {
+    assertThrows(IllegalArgumentException.class, () -> auctionBook.raise(0, 1));
+    assertThrows(
+        IllegalArgumentException.class, () -> auctionBook.raise(AuctionBook.MAX_RANK + 1, 1));
+  }
+
+  @Test
+  void shouldKeepHighestBidUnderContention() throws Exception {
+    int threads = 8;
+    int ranks = 4;
+    int bidsPerRank = 4000;
+    List<Integer> amounts = new ArrayList<>();
+    for (int amount = 1; amount <= bidsPerRank; amount++) {
+      amounts.add(amount);
+    }
+    Collections.shuffle(amounts);
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int offset = t;
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int i = offset; i < bidsPerRank; i += threads) {
+                  for (int rank = 1; rank <= ranks; rank++) {
+                    auctionBook.raise(rank, amounts.get(i));
+                  }
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    for (int rank = 1; rank <= ranks; rank++) {
+      assertEquals(auctionBook.amount(rank), bidsPerRank);
+    }
+  }
+}
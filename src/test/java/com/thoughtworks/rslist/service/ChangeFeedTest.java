@@ -0,0 +1,151 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Change;
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.ChangeLogDto;
+import com.thoughtworks.rslist.dto.ChangeSeqDto;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.repository.ChangeLogRepository;
+import com.thoughtworks.rslist.repository.ChangeSeqRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class ChangeFeedTest {
+  private static final long IDLE_RECHECK = 5000;
+
+  @Mock ChangeLogRepository changeLogRepository;
+  @Mock ChangeSeqRepository changeSeqRepository;
+  @Mock PlatformTransactionManager transactionManager;
+  long now;
+  ChangeFeed changeFeed;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    now = 1_000_000;
+    changeFeed = new ChangeFeed(
+            changeLogRepository, changeSeqRepository, transactionManager, 30000, IDLE_RECHECK, () -> now);
+    when(changeLogRepository.findBySeqGreaterThanOrderBySeqAsc(anyLong(), any(Pageable.class)))
+        .thenReturn(Collections.emptyList());
+  }
+
+  @Test
+  void shouldSaveRowsWithoutTouchingTheCounter() {
+    changeFeed.recordVotes(
+        Arrays.asList(
+            Vote.builder().userId(1).rsEventId(1).voteNum(1).build(),
+            Vote.builder().userId(1).rsEventId(2).voteNum(3).build()));
+
+    verify(changeLogRepository)
+        .saveAll(
+            argThat(
+                (List<ChangeLogDto> rows) ->
+                    rows.size() == 2
+                        && rows.get(0).getSeq() == null
+                        && rows.get(1).getAmount() == 3));
+    verifyNoInteractions(changeSeqRepository);
+  }
+
+  @Test
+  void shouldRelayUnnumberedRowsInIdOrderAfterTheCounter() {
+    ChangeSeqDto counter = ChangeSeqDto.builder().id(ChangeFeed.COUNTER).lastSeq(7).build();
+    when(changeSeqRepository.findLockedById(ChangeFeed.COUNTER)).thenReturn(Optional.of(counter));
+    ChangeLogDto first = ChangeLogDto.builder().id(20).type(ChangeFeed.VOTE).build();
+    ChangeLogDto second = ChangeLogDto.builder().id(23).type(ChangeFeed.TRADE).build();
+    when(changeLogRepository.findBySeqIsNullOrderByIdAsc(any(Pageable.class)))
+        .thenReturn(Arrays.asList(first, second));
+
+    assertEquals(changeFeed.relay(), 2);
+
+    assertEquals(first.getSeq(), 8L);
+    assertEquals(second.getSeq(), 9L);
+    assertEquals(counter.getLastSeq(), 9);
+    verify(changeSeqRepository).save(counter);
+  }
+
+  @Test
+  void shouldReadChangesBySeq() {
+    when(changeLogRepository.findBySeqGreaterThanOrderBySeqAsc(eq(10L), any(Pageable.class)))
+        .thenReturn(Arrays.asList(row(11, now), row(12, now)));
+
+    assertEquals(seqs(changeFeed.read(10, 100)), Arrays.asList(11L, 12L));
+  }
+
+  @Test
+  void shouldAnswerAParkedPollOnceAChangeIsReadable() {
+    DeferredResult<List<Change>> first = changeFeed.poll(0, 10);
+    DeferredResult<List<Change>> second = changeFeed.poll(0, 10);
+    assertFalse(first.hasResult());
+    assertEquals(changeFeed.waiting(), 2);
+    changeFeed.recheck();
+
+    when(changeLogRepository.findBySeqGreaterThanOrderBySeqAsc(eq(0L), any(Pageable.class)))
+        .thenReturn(Collections.singletonList(row(1, now)));
+    changeFeed.recheck();
+    assertFalse(first.hasResult());
+
+    now += IDLE_RECHECK;
+    changeFeed.recheck();
+
+    assertTrue(first.hasResult());
+    assertEquals(seqs(resultOf(second)), Collections.singletonList(1L));
+    assertEquals(changeFeed.waiting(), 0);
+    verify(changeLogRepository, times(4))
+        .findBySeqGreaterThanOrderBySeqAsc(eq(0L), any(Pageable.class));
+  }
+
+  @Test
+  void shouldRejectInvalidCursorAndLimit() {
+    assertThrows(RequestNotValidException.class, () -> changeFeed.poll(-1, 10));
+    assertThrows(RequestNotValidException.class, () -> changeFeed.poll(0, 0));
+    assertThrows(RequestNotValidException.class, () -> changeFeed.poll(0, ChangeFeed.MAX_LIMIT + 1));
+  }
+
+  private static List<Long> seqs(List<Change> changes) {
+    return changes.stream().map(Change::getSeq).collect(Collectors.toList());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Change> resultOf(DeferredResult<List<Change>> result) {
+    return (List<Change>) result.getResult();
+  }
+
+  private static ChangeLogDto row(long seq, long timeMillis) {
+    return ChangeLogDto.builder()
+        .id(seq)
+        .seq(seq)
+        .type(ChangeFeed.VOTE)
+        .rsEventId(1)
+        .userId(1)
+        .amount(1)
+        .time(LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), ZoneId.systemDefault()))
+        .build();
+  }
+}
@@ -0,0 +1,82 @@
+package com.thoughtworks.rslist.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtworks.rslist.domain.RsEvent;
+import com.thoughtworks.rslist.ranking.LeaderboardVersion;
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class EventListSnapshotsTest {
+  @Mock RsService rsService;
+  @Mock RsEventRanking rsEventRanking;
+  LeaderboardVersion version;
+  EventListSnapshots eventListSnapshots;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    version = new LeaderboardVersion();
+    eventListSnapshots =
+        new EventListSnapshots(rsService, rsEventRanking, version, new ObjectMapper(), 16, 60000);
+    when(rsEventRanking.isReady()).thenReturn(true);
+    when(rsService.getEventList(null, null, 1, 2))
+        .thenReturn(
+            Collections.singletonList(
+                RsEvent.builder().eventName("事件").keyword("无分类").userId(1).build()));
+  }
+
+  @Test
+  void shouldServeTheSameBytesUntilTheVersionMoves() throws IOException {
+    EventListSnapshots.Snapshot first = eventListSnapshots.get(null, null, 1, 2);
+    assertSame(eventListSnapshots.get(null, null, 1, 2), first);
+    verify(rsService, times(1)).getEventList(null, null, 1, 2);
+    assertArrayEquals(gunzip(first.getGzip()), first.getJson());
+
+    version.bump();
+    EventListSnapshots.Snapshot second = eventListSnapshots.get(null, null, 1, 2);
+
+    verify(rsService, times(2)).getEventList(null, null, 1, 2);
+    assertNotEquals(second.getEtag(), first.getEtag());
+    assertNotEquals(eventListSnapshots.etag(null), first.getEtag());
+  }
+
+  @Test
+  void shouldNotCacheOrTagDatabaseBackedLists() {
+    when(rsEventRanking.isReady()).thenReturn(false);
+
+    EventListSnapshots.Snapshot snapshot = eventListSnapshots.get(null, null, 1, 2);
+    eventListSnapshots.get(null, null, 1, 2);
+
+    assertNull(snapshot.getEtag());
+    assertNull(eventListSnapshots.etag(null));
+    verify(rsService, times(2)).getEventList(null, null, 1, 2);
+  }
+
+  private static byte[] gunzip(byte[] gzip) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+      byte[] buffer = new byte[4096];
+      for (int read; (read = in.read(buffer)) > 0; ) {
+        out.write(buffer, 0, read);
+      }
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,66 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class LookupCacheTest {
+  @Mock UserRepository userRepository;
+  @Mock RsEventRepository rsEventRepository;
+  LookupCache lookupCache;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    lookupCache = new LookupCache(userRepository, rsEventRepository, 100, 60000);
+  }
+
+  @Test
+  void shouldOnlyCacheExistingIds() {
+    when(rsEventRepository.existsById(1)).thenReturn(true);
+
+    assertTrue(lookupCache.rsEventExists(1));
+    assertTrue(lookupCache.rsEventExists(1));
+    assertFalse(lookupCache.rsEventExists(2));
+    assertFalse(lookupCache.rsEventExists(2));
+
+    verify(rsEventRepository, times(1)).existsById(1);
+    verify(rsEventRepository, times(2)).existsById(2);
+  }
+
+  @Test
+  void shouldQueryOnlyUncachedIdsInBatch() {
+    when(userRepository.existsById(1)).thenReturn(true);
+    lookupCache.userExists(1);
+    when(userRepository.findExistingIds(new HashSet<>(Arrays.asList(2, 3))))
+        .thenReturn(Collections.singletonList(2));
+
+    assertEquals(
+        lookupCache.existingUserIds(Arrays.asList(1, 2, 3)), new HashSet<>(Arrays.asList(1, 2)));
+    assertEquals(lookupCache.users().hits(), 1);
+  }
+
+  @Test
+  void shouldLoadAgainAfterEviction() {
+    when(userRepository.existsById(1)).thenReturn(true).thenReturn(false);
+    assertTrue(lookupCache.userExists(1));
+
+    lookupCache.evictUser(1);
+
+    assertFalse(lookupCache.userExists(1));
+  }
+}
@@ -0,0 +1,185 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.RsListApplication;
+import com.thoughtworks.rslist.domain.Trade;
+import com.thoughtworks.rslist.dto.RankSlotDto;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.TradeDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.repository.RankSlotRepository;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.TradeRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Two application instances sharing one database, as they would behind a load balancer. */
+class RsServiceClusterTest {
+  private static final String SHARED_DB = "jdbc:h2:mem:rsCluster;DB_CLOSE_DELAY=-1;MODE=MySQL";
+  private static final int THREADS = 16;
+
+  ConfigurableApplicationContext nodeA;
+  ConfigurableApplicationContext nodeB;
+  List<RsEventDto> rsEvents;
+
+  @BeforeEach
+  void setUp() {
+    nodeA = start("create");
+    UserDto user =
+        nodeA
+            .getBean(UserRepository.class)
+            .save(
+                UserDto.builder()
+                    .userName("idolice")
+                    .age(19)
+                    .email("a@b.com")
+                    .gender("female")
+                    .phone("18888888888")
+                    .voteNum(10)
+                    .build());
+    rsEvents = new ArrayList<>();
+    for (int i = 0; i < THREADS + 3; i++) {
+      rsEvents.add(
+          nodeA
+              .getBean(RsEventRepository.class)
+              .save(
+                  RsEventDto.builder()
+                      .keyword("无分类")
+                      .eventName("事件" + i)
+                      .voteNum(0)
+                      .user(user)
+                      .build()));
+    }
+    nodeB = start("none");
+  }
+
+  @AfterEach
+  void tearDown() {
+    nodeB.close();
+    nodeA.close();
+  }
+
+  private static ConfigurableApplicationContext start(String ddlAuto) {
+    return new SpringApplicationBuilder(RsListApplication.class)
+        .web(WebApplicationType.NONE)
+        .run(
+            "--spring.datasource.url=" + SHARED_DB,
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.jpa.hibernate.ddl-auto=" + ddlAuto);
+  }
+
+  private void buy(ConfigurableApplicationContext node, int amount, RsEventDto rsEvent) {
+    node.getBean(RsService.class)
+        .buy(Trade.builder().rank(1).amount(amount).build(), rsEvent.getId());
+  }
+
+  @Test
+  void shouldRejectBidsBelowTheOtherNodesWinningBid() {
+    buy(nodeA, 10, rsEvents.get(0));
+    assertThrows(RequestNotValidException.class, () -> buy(nodeB, 5, rsEvents.get(1)));
+    buy(nodeB, 20, rsEvents.get(1));
+    assertThrows(RequestNotValidException.class, () -> buy(nodeA, 15, rsEvents.get(2)));
+    buy(nodeA, 25, rsEvents.get(2));
+
+    RankSlotDto slot = nodeB.getBean(RankSlotRepository.class).findById(1).get();
+    assertEquals(slot.getAmount(), 25);
+    assertEquals(slot.getRsEventId(), rsEvents.get(2).getId());
+    assertEquals(nodeB.getBean(TradeRepository.class).findAll().size(), 1);
+    assertEquals(nodeB.getBean(RsEventRepository.class).count(), THREADS + 1);
+    assertEquals(nodeB.getBean(AuctionBook.class).amount(1), 20);
+  }
+
+  @Test
+  void shouldAcceptRanksOfEventsPostedThroughTheOtherNode() {
+    RsEventDto posted =
+        nodeA
+            .getBean(RsEventRepository.class)
+            .save(
+                RsEventDto.builder()
+                    .keyword("无分类")
+                    .eventName("新事件")
+                    .voteNum(0)
+                    .user(rsEvents.get(0).getUser())
+                    .build());
+    int lastRank = THREADS + 4;
+
+    nodeB.getBean(RsService.class)
+        .buy(Trade.builder().rank(lastRank).amount(1).build(), posted.getId());
+
+    RankSlotDto slot = nodeB.getBean(RankSlotRepository.class).findById(lastRank).get();
+    assertEquals(slot.getRsEventId(), posted.getId());
+    assertThrows(
+        RequestNotValidException.class,
+        () ->
+            nodeB.getBean(RsService.class)
+                .buy(Trade.builder().rank(lastRank + 1).amount(1).build(), posted.getId()));
+  }
+
+  @Test
+  void shouldLetOnlyOneConcurrentBuyHoldTheRankAcrossNodes() throws Exception {
+    Set<Integer> succeeded = ConcurrentHashMap.newKeySet();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      ConfigurableApplicationContext node = i % 2 == 0 ? nodeA : nodeB;
+      int amount = i + 1;
+      RsEventDto rsEvent = rsEvents.get(i);
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                try {
+                  buy(node, amount, rsEvent);
+                  succeeded.add(amount);
+                } catch (RequestNotValidException ignored) {
+                  // outbid by a bid on either node
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    RsEventRepository rsEventRepository = nodeA.getBean(RsEventRepository.class);
+    List<RsEventDto> holders =
+        rsEventRepository.findAll().stream()
+            .filter(item -> item.getTradeRank() == 1)
+            .collect(Collectors.toList());
+    List<TradeDto> trades = nodeA.getBean(TradeRepository.class).findAll();
+    RankSlotDto slot = nodeA.getBean(RankSlotRepository.class).findById(1).get();
+    int winningAmount = succeeded.stream().max(Integer::compare).get();
+    assertEquals(holders.size(), 1);
+    assertEquals(trades.size(), 1);
+    assertEquals(trades.get(0).getAmount(), winningAmount);
+    assertEquals(slot.getAmount(), winningAmount);
+    assertEquals(slot.getRsEventId(), holders.get(0).getId());
+    assertEquals(rsEventRepository.count(), THREADS + 3 + 1 - succeeded.size());
+  }
+}
@@ -0,0 +1,170 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Trade;
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.TradeDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.dto.VoteDto;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.TradeRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class RsServiceConcurrencyTest {
+  private static final int THREADS = 16;
+  private static final int VOTES_PER_THREAD = 20;
+  private static final int BALANCE = 100;
+
+  @Autowired RsService rsService;
+  @Autowired UserRepository userRepository;
+  @Autowired RsEventRepository rsEventRepository;
+  @Autowired VoteRepository voteRepository;
+  @Autowired TradeRepository tradeRepository;
+  @Autowired AuctionBook auctionBook;
+  UserDto user;
+  RsEventDto rsEvent;
+
+  @BeforeEach
+  void setUp() {
+    rsService.init();
+    user =
+        userRepository.save(
+            UserDto.builder()
+                .userName("idolice")
+                .age(19)
+                .email("a@b.com")
+                .gender("female")
+                .phone("18888888888")
+                .voteNum(BALANCE)
+                .build());
+    rsEvent =
+        rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("热门事件").voteNum(0).user(user).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    rsService.init();
+  }
+
+  @Test
+  void shouldKeepBalancesExactUnderConcurrentVotes() throws Exception {
+    AtomicInteger succeeded = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int j = 0; j < VOTES_PER_THREAD; j++) {
+                  Vote vote =
+                      Vote.builder()
+                          .userId(user.getId())
+                          .rsEventId(rsEvent.getId())
+                          .voteNum(1)
+                          .time(LocalDateTime.now())
+                          .build();
+                  try {
+                    rsService.vote(vote, rsEvent.getId());
+                    succeeded.incrementAndGet();
+                  } catch (RuntimeException ignored) {
+                    // overdrawn or lock timeout; either way nothing may be committed
+                  }
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    int balance = userRepository.findById(user.getId()).get().getVoteNum();
+    int eventVotes = rsEventRepository.findById(rsEvent.getId()).get().getVoteNum();
+    int recordedVotes = voteRepository.findAll().stream().mapToInt(VoteDto::getNum).sum();
+    assertTrue(balance >= 0);
+    assertTrue(succeeded.get() <= BALANCE);
+    assertEquals(BALANCE - balance, succeeded.get());
+    assertEquals(eventVotes, succeeded.get());
+    assertEquals(recordedVotes, succeeded.get());
+    assertEquals(rsService.getEventByIndex(1).getVoteNum(), succeeded.get());
+  }
+
+  @Test
+  void shouldLetOnlyOneConcurrentBuyHoldTheRank() throws Exception {
+    List<RsEventDto> rsEvents = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      rsEvents.add(
+          rsEventRepository.save(
+              RsEventDto.builder().keyword("无分类").eventName("事件" + i).voteNum(0).user(user).build()));
+    }
+    Set<Integer> succeeded = ConcurrentHashMap.newKeySet();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      int amount = i + 1;
+      int rsEventId = rsEvents.get(i).getId();
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                try {
+                  rsService.buy(Trade.builder().rank(1).amount(amount).build(), rsEventId);
+                  succeeded.add(amount);
+                } catch (RequestNotValidException ignored) {
+                  // outbid before or while buying
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    List<RsEventDto> holders =
+        rsEventRepository.findAll().stream()
+            .filter(item -> item.getTradeRank() == 1)
+            .collect(Collectors.toList());
+    List<TradeDto> trades = tradeRepository.findAll();
+    int winningAmount = succeeded.stream().max(Integer::compare).get();
+    assertEquals(holders.size(), 1);
+    assertEquals(trades.size(), 1);
+    assertEquals(trades.get(0).getAmount(), winningAmount);
+    assertEquals(trades.get(0).getRsEvent().getId(), holders.get(0).getId());
+    assertEquals(auctionBook.amount(1), winningAmount);
+    assertEquals(rsEventRepository.count(), 1 + THREADS + 1 - succeeded.size());
+    assertEquals(rsService.getEventByIndex(1).getUserId(), holders.get(0).getId());
+  }
+}
@@ -1,43 +1,96 @@
 package com.thoughtworks.rslist.service;
 
+import com.thoughtworks.rslist.domain.RsEvent;
 import com.thoughtworks.rslist.domain.Trade;
 import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.ChangeLogDto;
+import com.thoughtworks.rslist.dto.RankSlotDto;
 import com.thoughtworks.rslist.dto.RsEventDto;
 import com.thoughtworks.rslist.dto.TradeDto;
 import com.thoughtworks.rslist.dto.UserDto;
 import com.thoughtworks.rslist.dto.VoteDto;
 import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.ranking.HotRanking;
+import com.thoughtworks.rslist.ranking.LeaderboardVersion;
+import com.thoughtworks.rslist.ranking.RankEntry;
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import com.thoughtworks.rslist.repository.ChangeLogRepository;
+import com.thoughtworks.rslist.repository.ChangeSeqRepository;
+import com.thoughtworks.rslist.repository.RankSlotRepository;
 import com.thoughtworks.rslist.repository.RsEventRepository;
 import com.thoughtworks.rslist.repository.TradeRepository;
 import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteBatchRepository;
 import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.search.SearchIndex;
+import com.thoughtworks.rslist.support.RsEventListener;
+import com.thoughtworks.rslist.support.RsEventObserver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 class RsServiceTest {
   RsService rsService;
+  RsEventRanking rsEventRanking;
+  AuctionBook auctionBook;
+  LookupCache lookupCache;
+  SearchIndex searchIndex;
+  HotRanking hotRanking;
+  ChangeFeed changeFeed;
 
   @Mock RsEventRepository rsEventRepository;
   @Mock UserRepository userRepository;
   @Mock VoteRepository voteRepository;
   @Mock TradeRepository tradeRepository;
+  @Mock VoteBatchRepository voteBatchRepository;
+  @Mock RankSlotRepository rankSlotRepository;
+  @Mock ChangeLogRepository changeLogRepository;
+  @Mock ChangeSeqRepository changeSeqRepository;
+  @Mock PlatformTransactionManager transactionManager;
+  @Mock ObjectProvider<RsEventObserver> rsEventObservers;
   LocalDateTime localDateTime;
   Vote vote;
 
   @BeforeEach
   void setUp() {
     initMocks(this);
-    rsService = new RsService(rsEventRepository, userRepository, voteRepository, tradeRepository);
+    LeaderboardVersion leaderboardVersion = new LeaderboardVersion();
+    rsEventRanking = new RsEventRanking(rsEventRepository, true, leaderboardVersion);
+    rsEventRanking.rebuild();
+    auctionBook = new AuctionBook(rankSlotRepository);
+    lookupCache = new LookupCache(userRepository, rsEventRepository, 100, 60000);
+    searchIndex = new SearchIndex(rsEventRepository);
+    hotRanking = new HotRanking(rsEventRepository, voteRepository, 86400000, 3600000, leaderboardVersion);
+    hotRanking.rebuild();
+    changeFeed = new ChangeFeed(changeLogRepository, changeSeqRepository, transactionManager, 30000, 1000);
+    when(rsEventRepository.count()).thenReturn(2L);
+    when(rsEventObservers.orderedStream()).thenAnswer(invocation -> Stream.of(rsEventRanking, searchIndex, hotRanking));
+    rsService = new RsService(rsEventRepository, userRepository, voteRepository, tradeRepository, rsEventRanking, Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), voteBatchRepository, auctionBook, rankSlotRepository, lookupCache, new RsEventListener(rsEventObservers), searchIndex, hotRanking, changeFeed, transactionManager);
     localDateTime = LocalDateTime.now();
     vote = Vote.builder().voteNum(2).rsEventId(1).time(localDateTime).userId(1).build();
     rsService.init();
@@ -66,8 +119,10 @@ class RsServiceTest {
             .user(userDto)
             .build();
 
-    when(rsEventRepository.findById(anyInt())).thenReturn(Optional.of(rsEventDto));
-    when(userRepository.findById(anyInt())).thenReturn(Optional.of(userDto));
+    when(userRepository.decreaseVoteNum(1, 2)).thenReturn(1);
+    when(rsEventRepository.increaseVoteNum(1, 2)).thenReturn(1);
+    when(rsEventRepository.getOne(1)).thenReturn(rsEventDto);
+    when(userRepository.getOne(1)).thenReturn(userDto);
     // when
     rsService.vote(vote, 1);
     // then
@@ -79,8 +134,36 @@ class RsServiceTest {
                 .user(userDto)
                 .rsEvent(rsEventDto)
                 .build());
-    verify(userRepository).save(userDto);
-    verify(rsEventRepository).save(rsEventDto);
+    verify(changeLogRepository)
+        .saveAll(
+            argThat(
+                (List<ChangeLogDto> rows) ->
+                    rows.size() == 1
+                        && rows.get(0).getType().equals(ChangeFeed.VOTE)
+                        && rows.get(0).getRsEventId() == 1
+                        && rows.get(0).getAmount() == 2));
+    verify(userRepository, never()).save(any());
+    verify(rsEventRepository, never()).save(any());
+  }
+
+  @Test
+  void shouldThrowExceptionWhenVoteNumExceedsBalance() {
+    // given
+    when(userRepository.decreaseVoteNum(1, 2)).thenReturn(0);
+    //when&then
+    assertThrows(RequestNotValidException.class, () -> rsService.vote(vote, 1));
+    verify(rsEventRepository, never()).increaseVoteNum(anyInt(), anyInt());
+    verify(voteRepository, never()).save(any());
+  }
+
+  @Test
+  void shouldThrowExceptionWhenEventNotExist() {
+    // given
+    when(userRepository.decreaseVoteNum(1, 2)).thenReturn(1);
+    when(rsEventRepository.increaseVoteNum(1, 2)).thenReturn(0);
+    //when&then
+    assertThrows(RequestNotValidException.class, () -> rsService.vote(vote, 1));
+    verify(voteRepository, never()).save(any());
   }
 
   @Test
@@ -118,8 +201,9 @@ class RsServiceTest {
                     .user(userDto)
                     .build();
     Trade trade = Trade.builder().amount(10).rank(1).build();
-    when(rsEventRepository.findById(anyInt())).thenReturn(Optional.of(rsEventDto));
-    when(userRepository.findById(anyInt())).thenReturn(Optional.of(userDto));
+    when(rsEventRepository.findByIdOrTradeRank(1, 1)).thenReturn(Collections.singletonList(rsEventDto));
+    when(rsEventRepository.updateTradeRank(1, 1, 0)).thenReturn(1);
+    rsEventRanking.put(rsEventDto);
     //when
     rsService.buy(trade,1);
     //then
@@ -130,14 +214,87 @@ class RsServiceTest {
                             .amount(10)
                             .rsEvent(rsEventDto)
                             .build());
-    verify(rsEventRepository).save(rsEventDto);
+    verify(rankSlotRepository).insert(1, 10, 1);
+    verify(rsEventRepository).updateTradeRank(1, 1, 0);
+    verify(changeLogRepository)
+        .save(
+            argThat(
+                row ->
+                    row.getType().equals(ChangeFeed.TRADE)
+                        && row.getAmount() == 10
+                        && row.getTradeRank() == 1));
+    verify(rsEventRepository, never()).save(any());
+    assertEquals(auctionBook.amount(1), 10);
+  }
+
+  @Test
+  void shouldRejectTradeWhenRankSlotHoldsHigherBid() {
+    //given
+    RsEventDto rsEventDto = RsEventDto.builder().eventName("event name").id(1).keyword("keyword").build();
+    rsEventRanking.put(rsEventDto);
+    when(rankSlotRepository.outbid(1, 6, 1)).thenReturn(0);
+    when(rankSlotRepository.findById(1))
+            .thenReturn(Optional.of(RankSlotDto.builder().rank(1).amount(8).rsEventId(2).build()));
+    //when&then
+    assertThrows(
+            RequestNotValidException.class,
+            () -> rsService.buy(Trade.builder().amount(6).rank(1).build(), 1));
+    verify(rankSlotRepository, never()).insert(anyInt(), anyInt(), anyInt());
+    verify(tradeRepository, never()).save(any());
+    assertEquals(auctionBook.amount(1), 8);
+  }
+
+  @Test
+  void shouldDeleteDisplacedEventWhenTradeSuccess() {
+    //given
+    RsEventDto buyer = RsEventDto.builder().eventName("buyer").id(1).keyword("keyword").version(3).build();
+    RsEventDto holder = RsEventDto.builder().eventName("holder").id(2).keyword("keyword").tradeRank(1).version(7).build();
+    rsEventRanking.put(buyer);
+    rsEventRanking.put(holder);
+    auctionBook.raise(1, 5);
+    when(rankSlotRepository.outbid(1, 6, 1)).thenReturn(1);
+    when(rsEventRepository.findByIdOrTradeRank(1, 1)).thenReturn(Arrays.asList(buyer, holder));
+    when(rsEventRepository.deleteByIdAndVersion(2, 7)).thenReturn(1);
+    when(rsEventRepository.updateTradeRank(1, 1, 3)).thenReturn(1);
+    //when
+    rsService.buy(Trade.builder().amount(6).rank(1).build(), 1);
+    //then
+    verify(tradeRepository).deleteByRsEventId(2);
+    verify(voteRepository).deleteByRsEventId(2);
+    verify(rsEventRepository).deleteByIdAndVersion(2, 7);
+    assertEquals(rsEventRanking.size(), 1);
+    assertEquals(rsEventRanking.get(1).getId(), 1);
+  }
+
+  @Test
+  void shouldRetryTradeWhenHolderChangedConcurrently() {
+    //given
+    RsEventDto buyer = RsEventDto.builder().eventName("buyer").id(1).keyword("keyword").build();
+    RsEventDto holder = RsEventDto.builder().eventName("holder").id(2).keyword("keyword").tradeRank(1).version(1).build();
+    RsEventDto newHolder = RsEventDto.builder().eventName("holder").id(2).keyword("keyword").tradeRank(1).version(2).build();
+    rsEventRanking.put(buyer);
+    rsEventRanking.put(holder);
+    when(rsEventRepository.findByIdOrTradeRank(1, 1))
+            .thenReturn(Arrays.asList(buyer, holder))
+            .thenReturn(Arrays.asList(buyer, newHolder));
+    when(rsEventRepository.deleteByIdAndVersion(2, 1)).thenReturn(0);
+    when(rsEventRepository.deleteByIdAndVersion(2, 2)).thenReturn(1);
+    when(rsEventRepository.updateTradeRank(1, 1, 0)).thenReturn(1);
+    //when
+    rsService.buy(Trade.builder().amount(6).rank(1).build(), 1);
+    //then
+    verify(rsEventRepository, times(2)).findByIdOrTradeRank(1, 1);
+    verify(rsEventRepository).updateTradeRank(1, 1, 0);
   }
 
   @Test
   void shouldThrowExceptionWhenAmountLess() {
     // given
+    RsEventDto rsEventDto = RsEventDto.builder().eventName("event name").id(1).keyword("keyword").build();
+    when(rsEventRepository.findById(anyInt())).thenReturn(Optional.of(rsEventDto));
+    rsEventRanking.put(rsEventDto);
     Trade trade = Trade.builder().rank(1).amount(1).build();
-    rsService.tradeAmountForRank.set(0,1);
+    auctionBook.raise(1, 1);
     //when&then
     assertThrows(
             RequestNotValidException.class,
@@ -192,4 +349,71 @@ class RsServiceTest {
             });
   }
 
+  @Test
+  void shouldDeleteEventWithBulkStatements() {
+    //given
+    RsEventDto rsEventDto = RsEventDto.builder().eventName("event name").id(1).keyword("keyword").build();
+    rsEventRanking.put(rsEventDto);
+    when(rsEventRepository.deleteEvent(1)).thenReturn(1);
+    //when
+    rsService.deleteEventByIndex(1);
+    //then
+    verify(tradeRepository).deleteByRsEventId(1);
+    verify(voteRepository).deleteByRsEventId(1);
+    verify(rankSlotRepository).releaseHolders(Collections.singletonList(1));
+    verify(rsEventRepository, never()).delete(any());
+    assertEquals(rsEventRanking.size(), 0);
+  }
+
+  @Test
+  void shouldThrowExceptionWhenDeletingUnknownEvent() {
+    when(rsEventRepository.deleteEvent(1)).thenReturn(0);
+    assertThrows(RequestNotValidException.class, () -> rsService.deleteEventByIndex(1));
+    verify(rankSlotRepository, never()).releaseHolders(any());
+  }
+
+  @Test
+  void shouldCheckPostingUserOnceWhileCached() {
+    when(userRepository.existsById(2)).thenReturn(true);
+    RsEvent rsEvent = RsEvent.builder().eventName("event name").keyword("keyword").userId(2).build();
+
+    rsService.postEvent(rsEvent);
+    rsService.postEvent(rsEvent);
+
+    verify(userRepository, times(1)).existsById(2);
+    verify(rsEventRepository, times(2)).save(any());
+    assertEquals(lookupCache.users().hits(), 1);
+    assertEquals(lookupCache.users().misses(), 1);
+  }
+
+  @Test
+  void shouldShareOneRepositoryQueryAmongConcurrentIdenticalReads() throws Exception {
+    int callers = 8;
+    RsEventRanking databaseRanking =
+        new RsEventRanking(rsEventRepository, false, new LeaderboardVersion());
+    RsService databaseBacked = new RsService(rsEventRepository, userRepository, voteRepository, tradeRepository, databaseRanking, Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), voteBatchRepository, auctionBook, rankSlotRepository, lookupCache, new RsEventListener(rsEventObservers), searchIndex, hotRanking, changeFeed, transactionManager);
+    when(rsEventRepository.countByTradeRank(0)).thenReturn(0L);
+    when(rsEventRepository.findTradedRankEntries())
+        .thenAnswer(
+            invocation -> {
+              while (databaseBacked.listReads().coalesced() < callers - 1) {
+                Thread.sleep(1);
+              }
+              return Collections.singletonList(
+                  RankEntry.builder().id(1).eventName("event").keyword("keyword").tradeRank(1).build());
+            });
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    List<Future<List<RsEvent>>> futures = new ArrayList<>();
+    for (int i = 0; i < callers; i++) {
+      futures.add(executor.submit(() -> databaseBacked.getEventList(1, 1)));
+    }
+    for (Future<List<RsEvent>> future : futures) {
+      assertEquals(future.get(10, TimeUnit.SECONDS).get(0).getEventName(), "event");
+    }
+    executor.shutdown();
+
+    verify(rsEventRepository, times(1)).findTradedRankEntries();
+    assertEquals(databaseBacked.listReads().executed(), 1);
+    assertEquals(databaseBacked.listReads().coalesced(), callers - 1);
+  }
 }
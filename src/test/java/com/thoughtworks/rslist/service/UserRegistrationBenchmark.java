@@ -0,0 +1,72 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.User;
+import com.thoughtworks.rslist.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Rows per second for one-by-one registration (as POST /user does) against POST /users/batch.
+ * Run with {@code -Dbenchmark=true}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class UserRegistrationBenchmark {
+  private static final int SINGLE_ROWS = 10000;
+  private static final int BATCH_ROWS = 100000;
+
+  @Autowired UserService userService;
+  @Autowired UserRepository userRepository;
+  @Autowired RsService rsService;
+
+  @BeforeEach
+  void setUp() {
+    rsService.init();
+  }
+
+  @AfterEach
+  void tearDown() {
+    rsService.init();
+  }
+
+  @Test
+  void compareSingleAndBatchRegistration() {
+    List<User> users = users(SINGLE_ROWS);
+    long start = System.nanoTime();
+    users.forEach(userService::register);
+    report("one per request", SINGLE_ROWS, System.nanoTime() - start);
+
+    users = users(BATCH_ROWS);
+    start = System.nanoTime();
+    for (int from = 0; from < BATCH_ROWS; from += UserService.MAX_USER_BATCH) {
+      userService.registerAll(users.subList(from, from + UserService.MAX_USER_BATCH));
+    }
+    report("batched", BATCH_ROWS, System.nanoTime() - start);
+
+    assertEquals(userRepository.count(), SINGLE_ROWS + BATCH_ROWS);
+  }
+
+  private static List<User> users(int count) {
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      users.add(new User("user" + i % 1000, "female", 19, "a@b.com", "18888888888"));
+    }
+    return users;
+  }
+
+  private static void report(String mode, int rows, long nanos) {
+    log.info(String.format("%-16s %7d rows in %6d ms, %9.0f rows/s",
+        mode, rows, nanos / 1_000_000, rows * 1e9 / nanos));
+  }
+}
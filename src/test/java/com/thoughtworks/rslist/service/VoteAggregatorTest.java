@@ -0,0 +1,91 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {"rs.vote.mode=write-behind", "rs.vote.flush-interval-ms=3600000"})
+class VoteAggregatorTest {
+  @Autowired RsService rsService;
+  @Autowired VoteAggregator voteAggregator;
+  @Autowired UserRepository userRepository;
+  @Autowired RsEventRepository rsEventRepository;
+  @Autowired VoteRepository voteRepository;
+  @Autowired JdbcTemplate jdbcTemplate;
+  UserDto user;
+  RsEventDto rsEvent;
+
+  @BeforeEach
+  void setUp() {
+    rsService.init();
+    user =
+        userRepository.save(
+            UserDto.builder()
+                .userName("idolice")
+                .age(19)
+                .email("a@b.com")
+                .gender("female")
+                .phone("18888888888")
+                .voteNum(10)
+                .build());
+    rsEvent =
+        rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("热门事件").voteNum(0).user(user).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    rsService.init();
+  }
+
+  @Test
+  void shouldBufferEventVotesUntilFlush() {
+    rsService.vote(vote(3), rsEvent.getId());
+    rsService.vote(vote(2), rsEvent.getId());
+
+    assertEquals(userRepository.findById(user.getId()).get().getVoteNum(), 5);
+    assertEquals(voteRepository.findAll().size(), 2);
+    assertEquals(rsEventRepository.findById(rsEvent.getId()).get().getVoteNum(), 0);
+    assertEquals(voteAggregator.pending(rsEvent.getId()), 5);
+    assertEquals(rsService.getEventByIndex(1).getVoteNum(), 5);
+
+    voteAggregator.flush();
+
+    assertEquals(rsEventRepository.findById(rsEvent.getId()).get().getVoteNum(), 5);
+    assertEquals(voteAggregator.pending(rsEvent.getId()), 0);
+    assertEquals(rsService.getEventByIndex(1).getVoteNum(), 5);
+  }
+
+  @Test
+  void shouldRecoverUnflushedVotesFromVoteTable() {
+    rsService.vote(vote(4), rsEvent.getId());
+    voteAggregator.clear();
+
+    voteAggregator.reconcile();
+
+    assertEquals(rsEventRepository.findById(rsEvent.getId()).get().getVoteNum(), 4);
+    assertEquals(rsService.getEventByIndex(1).getVoteNum(), 4);
+  }
+
+  private Vote vote(int num) {
+    return Vote.builder()
+        .userId(user.getId())
+        .rsEventId(rsEvent.getId())
+        .voteNum(num)
+        .time(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,117 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.dto.VoteDto;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(
+    properties = {"rs.vote.group-commit.enabled=true", "rs.vote.group-commit.window-ms=50"})
+class VoteGroupCommitterTest {
+  private static final int THREADS = 16;
+  private static final int VOTE_NUM = 3;
+  private static final int BALANCE = 40;
+
+  @Autowired RsService rsService;
+  @Autowired VoteGroupCommitter voteGroupCommitter;
+  @Autowired UserRepository userRepository;
+  @Autowired RsEventRepository rsEventRepository;
+  @Autowired VoteRepository voteRepository;
+  UserDto user;
+  RsEventDto rsEvent;
+
+  @BeforeEach
+  void setUp() {
+    rsService.init();
+    user =
+        userRepository.save(
+            UserDto.builder()
+                .userName("idolice")
+                .age(19)
+                .email("a@b.com")
+                .gender("female")
+                .phone("18888888888")
+                .voteNum(BALANCE)
+                .build());
+    rsEvent =
+        rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("热门事件").voteNum(0).user(user).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    rsService.init();
+  }
+
+  @Test
+  void shouldCommitConcurrentVotesTogetherAndRejectOverspendingOnesAlone() throws Exception {
+    long groupsBefore = voteGroupCommitter.committer().groups();
+    AtomicInteger succeeded = new AtomicInteger();
+    ConcurrentHashMap<String, Integer> errors = new ConcurrentHashMap<>();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      int rsEventId = i == 0 ? rsEvent.getId() + 1000 : rsEvent.getId();
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                try {
+                  rsService.vote(
+                      Vote.builder()
+                          .userId(user.getId())
+                          .voteNum(VOTE_NUM)
+                          .time(LocalDateTime.now())
+                          .build(),
+                      rsEventId);
+                  succeeded.incrementAndGet();
+                } catch (RequestNotValidException e) {
+                  errors.merge(e.getMessage(), 1, Integer::sum);
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(succeeded.get(), BALANCE / VOTE_NUM);
+    assertEquals(errors.get("invalid rsEventId"), 1);
+    assertEquals(errors.get("invalid vote"), THREADS - 1 - BALANCE / VOTE_NUM);
+    assertEquals(
+        userRepository.findById(user.getId()).get().getVoteNum(), BALANCE % VOTE_NUM);
+    assertEquals(
+        rsEventRepository.findById(rsEvent.getId()).get().getVoteNum(), succeeded.get() * VOTE_NUM);
+    assertEquals(
+        voteRepository.findAll().stream().mapToInt(VoteDto::getNum).sum(),
+        succeeded.get() * VOTE_NUM);
+    assertTrue(voteGroupCommitter.committer().groups() - groupsBefore < THREADS);
+  }
+}
@@ -0,0 +1,147 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.RsListApplication;
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Sustained votes per second from concurrent voters in direct mode, where every vote is a
+ * transaction, against journal mode, where it is an append waiting for a group force. Journal
+ * mode is also timed until every vote is in the tables. Run with {@code -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class VoteJournalBenchmark {
+  private static final int THREADS = 16;
+  private static final int VOTES_PER_THREAD = 2000;
+  private static final int EVENTS = 100;
+
+  @Test
+  void compareDirectAndJournalVotes() throws Exception {
+    try (ConfigurableApplicationContext direct = start("direct", "--rs.vote.mode=direct")) {
+      int votes = run(direct);
+      assertEquals(votedInTables(direct), votes);
+    }
+    String dir = Files.createTempDirectory("vote-journal-benchmark").toString();
+    try (ConfigurableApplicationContext journal =
+        start("journal", "--rs.vote.mode=journal", "--rs.vote.journal.dir=" + dir)) {
+      int votes = run(journal);
+      long start = System.nanoTime();
+      VoteJournal voteJournal = journal.getBean(VoteJournal.class);
+      while (voteJournal.materialize() > 0) {
+        // drain ahead of the scheduled runs
+      }
+      report("journal, in tables", votes, System.nanoTime() - start);
+      assertEquals(votedInTables(journal), votes);
+    }
+  }
+
+  private static ConfigurableApplicationContext start(String db, String... args) {
+    List<String> all = new ArrayList<>();
+    all.add("--spring.datasource.url=jdbc:h2:mem:" + db + "Benchmark;DB_CLOSE_DELAY=-1;MODE=MySQL");
+    all.add("--spring.datasource.username=sa");
+    all.add("--spring.datasource.password=");
+    all.add("--spring.datasource.driver-class-name=org.h2.Driver");
+    for (String arg : args) {
+      all.add(arg);
+    }
+    return new SpringApplicationBuilder(RsListApplication.class)
+        .web(WebApplicationType.NONE)
+        .run(all.toArray(new String[0]));
+  }
+
+  private static int run(ConfigurableApplicationContext context) throws Exception {
+    RsService rsService = context.getBean(RsService.class);
+    UserRepository userRepository = context.getBean(UserRepository.class);
+    RsEventRepository rsEventRepository = context.getBean(RsEventRepository.class);
+    List<UserDto> users = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      users.add(
+          userRepository.save(
+              UserDto.builder()
+                  .userName("user" + i)
+                  .age(19)
+                  .email("a@b.com")
+                  .gender("female")
+                  .phone("18888888888")
+                  .voteNum(VOTES_PER_THREAD)
+                  .build()));
+    }
+    List<RsEventDto> rsEvents = new ArrayList<>();
+    for (int i = 0; i < EVENTS; i++) {
+      rsEvents.add(
+          rsEventRepository.save(
+              RsEventDto.builder()
+                  .keyword("无分类")
+                  .eventName("事件" + i)
+                  .voteNum(0)
+                  .user(users.get(0))
+                  .build()));
+    }
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<?>> futures = new ArrayList<>();
+    for (UserDto user : users) {
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int j = 0; j < VOTES_PER_THREAD; j++) {
+                  int rsEventId = rsEvents.get(j % EVENTS).getId();
+                  rsService.vote(
+                      Vote.builder()
+                          .userId(user.getId())
+                          .rsEventId(rsEventId)
+                          .voteNum(1)
+                          .time(LocalDateTime.now())
+                          .build(),
+                      rsEventId);
+                }
+                return null;
+              }));
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long nanos = System.nanoTime() - begin;
+    executor.shutdown();
+    int votes = THREADS * VOTES_PER_THREAD;
+    report(context.getEnvironment().getProperty("rs.vote.mode"), votes, nanos);
+    return votes;
+  }
+
+  private static int votedInTables(ConfigurableApplicationContext context) {
+    int sum = 0;
+    for (RsEventDto rsEvent : context.getBean(RsEventRepository.class).findAll()) {
+      sum += rsEvent.getVoteNum();
+    }
+    return sum;
+  }
+
+  private static void report(String mode, int votes, long nanos) {
+    log.info(String.format("%-20s %7d votes in %6d ms, %9.0f votes/s",
+        mode, votes, nanos / 1_000_000, votes * 1e9 / nanos));
+  }
+}
@@ -0,0 +1,230 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteResult;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.ranking.HotRanking;
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import com.thoughtworks.rslist.repository.JournalCheckpointRepository;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteBatchRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.repository.VoteWriterRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"rs.vote.mode=journal", "rs.vote.journal.materialize-ms=3600000"})
+class VoteJournalTest {
+  private static final long SEGMENT_BYTES = 4800;
+  private static Path dir;
+
+  @Autowired RsService rsService;
+  @Autowired VoteJournal voteJournal;
+  @Autowired JournalCheckpointRepository checkpointRepository;
+  @Autowired UserRepository userRepository;
+  @Autowired RsEventRepository rsEventRepository;
+  @Autowired VoteRepository voteRepository;
+  @Autowired VoteBatchRepository voteBatchRepository;
+  @Autowired VoteWriterRepository voteWriterRepository;
+  @Autowired LookupCache lookupCache;
+  @Autowired ChangeFeed changeFeed;
+  @Autowired RsEventRanking rsEventRanking;
+  @Autowired HotRanking hotRanking;
+  @Autowired VoteWriterLease voteWriterLease;
+  @Autowired PlatformTransactionManager transactionManager;
+  UserDto user;
+  RsEventDto rsEvent;
+
+  @DynamicPropertySource
+  static void journalProperties(DynamicPropertyRegistry registry) throws IOException {
+    dir = Files.createTempDirectory("vote-journal");
+    registry.add("rs.vote.journal.dir", dir::toString);
+    registry.add("rs.vote.journal.segment-bytes", () -> SEGMENT_BYTES);
+  }
+
+  @BeforeEach
+  void setUp() {
+    rsService.init();
+    user =
+        userRepository.save(
+            UserDto.builder()
+                .userName("idolice")
+                .age(19)
+                .email("a@b.com")
+                .gender("female")
+                .phone("18888888888")
+                .voteNum(10)
+                .build());
+    rsEvent =
+        rsEventRepository.save(
+            RsEventDto.builder().keyword("无分类").eventName("热门事件").voteNum(0).user(user).build());
+    rsEventRanking.rebuild();
+  }
+
+  @AfterEach
+  void tearDown() {
+    rsService.init();
+  }
+
+  @Test
+  void shouldAcknowledgeVotesBeforeWritingThemToTheTables() {
+    rsService.vote(vote(3), rsEvent.getId());
+    List<VoteResult> results = rsService.voteBatch(Arrays.asList(vote(2), vote(6)));
+
+    assertTrue(results.get(0).isSuccess());
+    assertEquals(results.get(1).getError(), "invalid vote");
+    assertThrows(RequestNotValidException.class, () -> rsService.vote(vote(6), rsEvent.getId()));
+    assertEquals(rsService.getEventByIndex(1).getVoteNum(), 5);
+    assertEquals(userRepository.findById(user.getId()).get().getVoteNum(), 10);
+    assertEquals(voteRepository.findAll().size(), 0);
+    assertEquals(voteJournal.unmaterialized(), 2);
+
+    assertEquals(voteJournal.materialize(), 2);
+
+    assertEquals(voteJournal.unmaterialized(), 0);
+    assertEquals(userRepository.findById(user.getId()).get().getVoteNum(), 5);
+    assertEquals(rsEventRepository.findById(rsEvent.getId()).get().getVoteNum(), 5);
+    assertEquals(voteRepository.findAll().size(), 2);
+    rsService.vote(vote(5), rsEvent.getId());
+    assertThrows(RequestNotValidException.class, () -> rsService.vote(vote(1), rsEvent.getId()));
+  }
+
+  @Test
+  void shouldRollOverSegmentsAndDropThemOnceMaterialized() throws IOException {
+    user.setVoteNum(1000);
+    userRepository.save(user);
+    int records = (int) (SEGMENT_BYTES / VoteJournal.RECORD_BYTES) * 2 + 10;
+    for (int i = 0; i < records / 2; i++) {
+      rsService.voteBatch(Arrays.asList(vote(1), vote(1)));
+    }
+    assertTrue(segments().size() > 2);
+
+    assertEquals(voteJournal.materialize(), records);
+
+    assertEquals(segments().size(), 1);
+    assertEquals(rsEventRepository.findById(rsEvent.getId()).get().getVoteNum(), records);
+    assertEquals(userRepository.findById(user.getId()).get().getVoteNum(), 1000 - records);
+  }
+
+  @Test
+  void shouldReplayRecordsAfterTheCheckpointAndStopAtATornRecord() throws Exception {
+    rsService.vote(vote(3), rsEvent.getId());
+    rsService.vote(vote(4), rsEvent.getId());
+    Path tail = segments().get(segments().size() - 1);
+    try (RandomAccessFile file = new RandomAccessFile(tail.toFile(), "rw")) {
+      long offset = 0;
+      do {
+        file.seek(offset + 8);
+        offset += VoteJournal.RECORD_BYTES;
+      } while (file.readInt() != 0);
+      file.seek(offset - VoteJournal.RECORD_BYTES);
+      file.writeInt(user.getId());
+      file.writeInt(rsEvent.getId());
+      file.writeInt(1);
+    }
+
+    VoteJournal restarted =
+        new VoteJournal(
+            checkpointRepository,
+            userRepository,
+            rsEventRepository,
+            voteRepository,
+            voteBatchRepository,
+            lookupCache,
+            changeFeed,
+            rsEventRanking,
+            hotRanking,
+            voteWriterLease,
+            transactionManager,
+            dir.toString(),
+            SEGMENT_BYTES,
+            1000,
+            1);
+    restarted.open();
+    restarted.close();
+
+    assertEquals(userRepository.findById(user.getId()).get().getVoteNum(), 3);
+    assertEquals(rsEventRepository.findById(rsEvent.getId()).get().getVoteNum(), 7);
+    assertEquals(voteRepository.findAll().size(), 2);
+    assertEquals(rsService.getEventByIndex(1).getVoteNum(), 7);
+  }
+
+  @Test
+  void shouldTakeBackVotesTheUserCanNoLongerCover() {
+    rsService.vote(vote(3), rsEvent.getId());
+    assertEquals(rsService.getEventByIndex(1).getVoteNum(), 3);
+    user.setVoteNum(1);
+    userRepository.save(user);
+
+    assertEquals(voteJournal.materialize(), 1);
+
+    assertEquals(voteRepository.findAll().size(), 0);
+    assertEquals(rsEventRepository.findById(rsEvent.getId()).get().getVoteNum(), 0);
+    assertEquals(rsService.getEventByIndex(1).getVoteNum(), 0);
+    assertEquals(hotRanking.slice(1, 1).get(0).getVoteNum(), 0);
+  }
+
+  @Test
+  void shouldRefuseToOpenWhileAnotherInstanceHoldsTheLease() {
+    VoteWriterLease other = new VoteWriterLease(voteWriterRepository, 30000);
+    VoteJournal second =
+        new VoteJournal(
+            checkpointRepository,
+            userRepository,
+            rsEventRepository,
+            voteRepository,
+            voteBatchRepository,
+            lookupCache,
+            changeFeed,
+            rsEventRanking,
+            hotRanking,
+            other,
+            transactionManager,
+            dir.toString(),
+            SEGMENT_BYTES,
+            1000,
+            1);
+
+    assertThrows(IllegalStateException.class, second::open);
+    assertEquals(voteJournal.unmaterialized(), 0);
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.sorted(Comparator.comparing(Path::toString)).collect(Collectors.toList());
+    }
+  }
+
+  private Vote vote(int voteNum) {
+    return Vote.builder()
+        .userId(user.getId())
+        .rsEventId(rsEvent.getId())
+        .voteNum(voteNum)
+        .time(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,121 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.ranking.HotRanking;
+import com.thoughtworks.rslist.ranking.LeaderboardVersion;
+import com.thoughtworks.rslist.ranking.RankEntry;
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.VoteBatchRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.Mock;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Votes per second through {@link VoteShards} for 1 up to {@code -Dshards} (default: available
+ * processors) shards, from a fixed set of producer threads spread over a few hot events: the
+ * handoff, the per-shard counts and the ranking updates, with the database mocked out. Run with
+ * {@code -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class VoteShardsBenchmark {
+  private static final int PRODUCERS = 16;
+  private static final int VOTES_PER_PRODUCER = 200000;
+  private static final int EVENTS = 64;
+
+  @Mock RsEventRepository rsEventRepository;
+  @Mock VoteRepository voteRepository;
+  @Mock VoteBatchRepository voteBatchRepository;
+  @Mock VoteReconciler voteReconciler;
+  @Mock PlatformTransactionManager transactionManager;
+
+  @Test
+  void compareShardCounts() throws Exception {
+    initMocks(this);
+    List<RankEntry> events = new ArrayList<>();
+    for (int id = 1; id <= EVENTS; id++) {
+      events.add(
+          RankEntry.builder().id(id).eventName("event " + id).keyword("k").voteNum(0).build());
+    }
+    when(rsEventRepository.findAllRankEntries()).thenReturn(events);
+    int max = Integer.getInteger("shards", Runtime.getRuntime().availableProcessors());
+    for (int shards = 1; shards < max; shards *= 2) {
+      run(shards);
+    }
+    run(max);
+  }
+
+  private void run(int shardCount) throws Exception {
+    LeaderboardVersion version = new LeaderboardVersion();
+    RsEventRanking rsEventRanking = new RsEventRanking(rsEventRepository, true, version);
+    rsEventRanking.rebuild();
+    HotRanking hotRanking =
+        new HotRanking(rsEventRepository, voteRepository, 86400000, 3600000, version);
+    hotRanking.rebuild();
+    VoteShards voteShards =
+        new VoteShards(
+            voteBatchRepository,
+            rsEventRanking,
+            hotRanking,
+            voteReconciler,
+            transactionManager,
+            shardCount,
+            4096,
+            3600000);
+    voteShards.start();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int p = 0; p < PRODUCERS; p++) {
+      int producer = p;
+      futures.add(
+          executor.submit(
+              () -> {
+                LocalDateTime time = LocalDateTime.now();
+                start.await();
+                for (int i = 0; i < VOTES_PER_PRODUCER; i++) {
+                  voteShards.add(
+                      Vote.builder()
+                          .rsEventId(1 + (producer + i) % EVENTS)
+                          .voteNum(1)
+                          .time(time)
+                          .build());
+                }
+                return null;
+              }));
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long pending = 0;
+    for (int id = 1; id <= EVENTS; id++) {
+      pending += voteShards.pending(id);
+    }
+    long nanos = System.nanoTime() - begin;
+    executor.shutdown();
+    voteShards.close();
+
+    long votes = (long) PRODUCERS * VOTES_PER_PRODUCER;
+    assertEquals(pending, votes);
+    log.info(String.format("%2d shards %9d votes in %6d ms, %11.0f votes/s",
+        shardCount, votes, nanos / 1_000_000, votes * 1e9 / nanos));
+  }
+}
@@ -0,0 +1,254 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.ranking.HotRanking;
+import com.thoughtworks.rslist.ranking.RsEventRanking;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteBatchRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(
+    properties = {
+      "rs.vote.mode=sharded",
+      "rs.vote.shards.count=2",
+      "rs.vote.shards.flush-interval-ms=3600000"
+    })
+class VoteShardsTest {
+  private static final int THREADS = 8;
+  private static final int VOTES_PER_THREAD = 20;
+  private static final int BALANCE = 100;
+
+  @Autowired RsService rsService;
+  @Autowired VoteShards voteShards;
+  @Autowired RsEventRanking rsEventRanking;
+  @Autowired UserRepository userRepository;
+  @Autowired RsEventRepository rsEventRepository;
+  List<UserDto> users;
+  List<RsEventDto> rsEvents;
+
+  @BeforeEach
+  void setUp() {
+    rsService.init();
+    users = new ArrayList<>();
+    rsEvents = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      users.add(
+          userRepository.save(
+              UserDto.builder()
+                  .userName("user" + i)
+                  .age(19)
+                  .email("a@b.com")
+                  .gender("female")
+                  .phone("18888888888")
+                  .voteNum(BALANCE)
+                  .build()));
+      rsEvents.add(
+          rsEventRepository.save(
+              RsEventDto.builder()
+                  .keyword("无分类")
+                  .eventName("事件" + i)
+                  .voteNum(0)
+                  .user(users.get(i))
+                  .build()));
+    }
+    rsEventRanking.rebuild();
+  }
+
+  @AfterEach
+  void tearDown() {
+    rsService.init();
+  }
+
+  @Test
+  void shouldKeepBalancesExactAndCountVotesOnTheOwningShard() throws Exception {
+    AtomicInteger succeeded = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      // every user votes on both events, so each balance is spent from both shards
+      UserDto user = users.get(i % 2);
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int j = 0; j < VOTES_PER_THREAD; j++) {
+                  int rsEventId = rsEvents.get(j % 2).getId();
+                  try {
+                    rsService.vote(
+                        Vote.builder()
+                            .userId(user.getId())
+                            .voteNum(3)
+                            .time(LocalDateTime.now())
+                            .build(),
+                        rsEventId);
+                    succeeded.incrementAndGet();
+                  } catch (RuntimeException ignored) {
+                    // overdrawn
+                  }
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    int spent = 0;
+    for (UserDto user : users) {
+      int balance = userRepository.findById(user.getId()).get().getVoteNum();
+      assertEquals(balance, BALANCE % 3);
+      spent += BALANCE - balance;
+    }
+    assertEquals(succeeded.get() * 3, spent);
+    long pending =
+        voteShards.pending(rsEvents.get(0).getId()) + voteShards.pending(rsEvents.get(1).getId());
+    assertEquals(pending, spent);
+    assertEquals(rsEventRepository.findById(rsEvents.get(0).getId()).get().getVoteNum(), 0);
+    assertEquals(
+        rsService.getEventByIndex(1).getVoteNum() + rsService.getEventByIndex(2).getVoteNum(),
+        spent);
+
+    voteShards.flush();
+
+    assertEquals(voteShards.pending(rsEvents.get(0).getId()), 0);
+    assertEquals(
+        rsEventRepository.findById(rsEvents.get(0).getId()).get().getVoteNum()
+            + rsEventRepository.findById(rsEvents.get(1).getId()).get().getVoteNum(),
+        spent);
+  }
+
+  @Test
+  void shouldWriteVotesStillInTheRingWhenClosed() throws Exception {
+    VoteBatchRepository voteBatchRepository = mock(VoteBatchRepository.class);
+    RsEventRanking ranking = mock(RsEventRanking.class);
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(
+            invocation -> {
+              entered.countDown();
+              release.await();
+              return null;
+            })
+        .doNothing()
+        .when(ranking)
+        .addVotes(anyInt(), anyInt());
+    VoteShards closing =
+        new VoteShards(
+            voteBatchRepository,
+            ranking,
+            mock(HotRanking.class),
+            mock(VoteReconciler.class),
+            mock(PlatformTransactionManager.class),
+            1,
+            16,
+            3600000);
+    closing.start();
+    closing.add(Vote.builder().rsEventId(1).voteNum(2).time(LocalDateTime.now()).build());
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+    Thread closer =
+        new Thread(
+            () -> {
+              try {
+                closing.close();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    closer.start();
+    while (closer.getState() != Thread.State.WAITING) {
+      Thread.yield();
+    }
+
+    closing.add(Vote.builder().rsEventId(1).voteNum(3).time(LocalDateTime.now()).build());
+    release.countDown();
+    closer.join(5000);
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Map<Integer, Long>> written = ArgumentCaptor.forClass(Map.class);
+    verify(voteBatchRepository, atLeastOnce()).addEventVotes(written.capture());
+    assertEquals(written.getAllValues().stream().mapToLong(deltas -> deltas.get(1)).sum(), 5);
+  }
+
+  @Test
+  void shouldRejectVotesAndCallsAfterClose() throws Exception {
+    VoteShards closed = standalone(mock(RsEventRanking.class));
+    closed.start();
+    closed.close();
+
+    assertThrows(
+        IllegalStateException.class,
+        () -> closed.add(Vote.builder().rsEventId(1).voteNum(2).time(LocalDateTime.now()).build()));
+    assertThrows(IllegalStateException.class, () -> closed.pending(1));
+  }
+
+  @Test
+  void shouldKeepRankingVotesAfterAFailedUpdate() throws Exception {
+    RsEventRanking ranking = mock(RsEventRanking.class);
+    CountDownLatch ranked = new CountDownLatch(1);
+    doThrow(new IllegalStateException("broken"))
+        .doAnswer(
+            invocation -> {
+              ranked.countDown();
+              return null;
+            })
+        .when(ranking)
+        .addVotes(anyInt(), anyInt());
+    VoteShards shards = standalone(ranking);
+    shards.start();
+
+    shards.add(Vote.builder().rsEventId(1).voteNum(2).time(LocalDateTime.now()).build());
+    assertEquals(shards.pending(1), 2);
+    shards.add(Vote.builder().rsEventId(1).voteNum(3).time(LocalDateTime.now()).build());
+
+    assertTrue(ranked.await(5, TimeUnit.SECONDS));
+    verify(ranking).addVotes(1, 3);
+    assertEquals(shards.pending(1), 5);
+    shards.close();
+  }
+
+  private static VoteShards standalone(RsEventRanking ranking) {
+    return new VoteShards(
+        mock(VoteBatchRepository.class),
+        ranking,
+        mock(HotRanking.class),
+        mock(VoteReconciler.class),
+        mock(PlatformTransactionManager.class),
+        1,
+        16,
+        3600000);
+  }
+}
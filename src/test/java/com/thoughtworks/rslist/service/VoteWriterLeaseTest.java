@@ -0,0 +1,61 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.repository.VoteWriterRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class VoteWriterLeaseTest {
+  private static final long LEASE_MILLIS = 30000;
+
+  @Autowired VoteWriterRepository voteWriterRepository;
+  long now;
+  VoteWriterLease first;
+  VoteWriterLease second;
+
+  @BeforeEach
+  void setUp() {
+    voteWriterRepository.deleteAll();
+    first = new VoteWriterLease(voteWriterRepository, LEASE_MILLIS, () -> now);
+    second = new VoteWriterLease(voteWriterRepository, LEASE_MILLIS, () -> now);
+  }
+
+  @AfterEach
+  void tearDown() {
+    voteWriterRepository.deleteAll();
+  }
+
+  @Test
+  void shouldRefuseASecondWriterWhileTheLeaseIsRenewed() {
+    first.acquire();
+    assertThrows(IllegalStateException.class, second::acquire);
+
+    now += LEASE_MILLIS - 1;
+    first.renew();
+    now += LEASE_MILLIS - 1;
+
+    assertThrows(IllegalStateException.class, second::acquire);
+    assertTrue(first.held());
+  }
+
+  @Test
+  void shouldHandTheLeaseOverOnceReleasedOrLapsed() {
+    first.acquire();
+    first.release();
+    second.acquire();
+
+    now += LEASE_MILLIS + 1;
+    first.acquire();
+    second.renew();
+
+    assertTrue(first.held());
+    assertFalse(second.held());
+  }
+}
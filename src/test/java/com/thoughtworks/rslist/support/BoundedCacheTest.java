@@ -0,0 +1,46 @@
+package com.thoughtworks.rslist.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BoundedCacheTest {
+  private final AtomicLong now = new AtomicLong();
+  private final BoundedCache<Integer, String> cache = new BoundedCache<>(2, 10, now::get);
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntryBeyondMaxSize() {
+    cache.put(1, "a");
+    cache.put(2, "b");
+    cache.get(1);
+    cache.put(3, "c");
+
+    assertEquals(cache.get(1), "a");
+    assertNull(cache.get(2));
+    assertEquals(cache.get(3), "c");
+    assertEquals(cache.size(), 2);
+    assertEquals(cache.evictions(), 1);
+  }
+
+  @Test
+  void shouldExpireEntriesAfterTtl() {
+    cache.put(1, "a");
+    now.addAndGet(10_000_000);
+    assertEquals(cache.get(1), "a");
+    now.addAndGet(1);
+    assertNull(cache.get(1));
+    assertEquals(cache.size(), 0);
+    assertEquals(cache.hits(), 1);
+    assertEquals(cache.misses(), 1);
+  }
+
+  @Test
+  void shouldForgetInvalidatedEntries() {
+    cache.put(1, "a");
+    cache.invalidate(1);
+    assertNull(cache.get(1));
+  }
+}
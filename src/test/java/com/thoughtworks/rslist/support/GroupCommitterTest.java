@@ -0,0 +1,125 @@
+package com.thoughtworks.rslist.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupCommitterTest {
+  private static final int CALLERS = 16;
+  private static final long LONG_WINDOW_MILLIS = 10000;
+
+  final List<List<Integer>> applied = Collections.synchronizedList(new ArrayList<>());
+  GroupCommitter<Integer, Integer> committer;
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    committer.close();
+  }
+
+  @Test
+  void shouldApplyConcurrentSubmissionsInOneCall() throws Exception {
+    committer = new GroupCommitter<>("test-group-commit", LONG_WINDOW_MILLIS, CALLERS, doubled());
+
+    List<Future<Integer>> futures = submitAll(CALLERS);
+
+    for (int i = 0; i < CALLERS; i++) {
+      assertEquals(futures.get(i).get(10, TimeUnit.SECONDS), i * 2);
+    }
+    assertEquals(applied.size(), 1);
+    assertEquals(applied.get(0).size(), CALLERS);
+    assertEquals(committer.groups(), 1);
+    assertEquals(committer.items(), CALLERS);
+  }
+
+  @Test
+  void shouldCloseAGroupOnceTheWindowHasPassed() throws Exception {
+    committer = new GroupCommitter<>("test-group-commit", 1, CALLERS, doubled());
+
+    assertEquals(committer.submit(21), 42);
+    assertEquals(committer.submit(4), 8);
+    assertEquals(committer.groups(), 2);
+  }
+
+  @Test
+  void shouldFailOnlyTheItemThatBreaksTheGroup() throws Exception {
+    int poison = 3;
+    committer =
+        new GroupCommitter<>(
+            "test-group-commit",
+            LONG_WINDOW_MILLIS,
+            CALLERS,
+            items -> {
+              applied.add(new ArrayList<>(items));
+              if (items.contains(poison)) {
+                throw new IllegalStateException("boom");
+              }
+              return items.stream().map(item -> item * 2).collect(Collectors.toList());
+            });
+
+    List<Future<Integer>> futures = submitAll(CALLERS);
+
+    for (int i = 0; i < CALLERS; i++) {
+      Future<Integer> future = futures.get(i);
+      if (i == poison) {
+        ExecutionException thrown =
+            assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertTrue(thrown.getCause() instanceof IllegalStateException);
+      } else {
+        assertEquals(future.get(10, TimeUnit.SECONDS), i * 2);
+      }
+    }
+    assertEquals(applied.size(), 1 + CALLERS);
+    assertEquals(committer.groups(), 1);
+  }
+
+  @Test
+  void shouldReleaseEveryCallerWhenClosedWhileSubmitting() throws Exception {
+    for (int round = 0; round < 20; round++) {
+      committer = new GroupCommitter<>("test-group-commit", 1, CALLERS, doubled());
+      List<Future<Integer>> futures = submitAll(CALLERS);
+
+      committer.close();
+
+      for (int i = 0; i < CALLERS; i++) {
+        try {
+          assertEquals(futures.get(i).get(10, TimeUnit.SECONDS), i * 2);
+        } catch (ExecutionException e) {
+          assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+      }
+    }
+  }
+
+  private Function<List<Integer>, List<Integer>> doubled() {
+    return items -> {
+      applied.add(new ArrayList<>(items));
+      return items.stream().map(item -> item * 2).collect(Collectors.toList());
+    };
+  }
+
+  /** Submits 0 until {@code count - 1}, each from its own thread. */
+  private List<Future<Integer>> submitAll(int count) {
+    ExecutorService executor = Executors.newFixedThreadPool(count);
+    List<Future<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      int item = i;
+      futures.add(executor.submit(() -> committer.submit(item)));
+    }
+    executor.shutdown();
+    return futures;
+  }
+}
@@ -0,0 +1,77 @@
+package com.thoughtworks.rslist.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+  private static final int PRODUCERS = 8;
+  private static final int ITEMS_PER_PRODUCER = 100000;
+
+  @Test
+  void shouldRejectOffersWhileFullAndReuseSlotsOnceConsumed() {
+    RingBuffer<Integer> ring = new RingBuffer<>(3);
+    assertEquals(ring.capacity(), 4);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.offer(i));
+    }
+    assertFalse(ring.offer(4));
+
+    assertEquals(ring.poll(), 0);
+    assertTrue(ring.offer(4));
+    for (int i = 1; i <= 4; i++) {
+      assertEquals(ring.poll(), i);
+    }
+    assertNull(ring.poll());
+  }
+
+  @Test
+  void shouldDeliverEveryItemOnceInEachProducersOrder() throws Exception {
+    RingBuffer<long[]> ring = new RingBuffer<>(1024);
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int p = 0; p < PRODUCERS; p++) {
+      long producer = p;
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (long i = 0; i < ITEMS_PER_PRODUCER; i++) {
+                  long[] item = {producer, i};
+                  while (!ring.offer(item)) {
+                    Thread.yield();
+                  }
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+
+    long[] next = new long[PRODUCERS];
+    for (int received = 0; received < PRODUCERS * ITEMS_PER_PRODUCER; ) {
+      long[] item = ring.poll();
+      if (item == null) {
+        Thread.yield();
+        continue;
+      }
+      assertEquals(item[1], next[(int) item[0]]++);
+      received++;
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertNull(ring.poll());
+  }
+}
@@ -0,0 +1,97 @@
+package com.thoughtworks.rslist.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+  private static final int CALLERS = 16;
+
+  SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+  @Test
+  void shouldRunConcurrentCallsWithTheSameKeyOnce() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    List<Future<Integer>> futures =
+        submitAll(
+            () ->
+                singleFlight.execute(
+                    "list",
+                    () -> {
+                      calls.incrementAndGet();
+                      await(release);
+                      return 42;
+                    }));
+    waitUntilCoalesced();
+    release.countDown();
+
+    for (Future<Integer> future : futures) {
+      assertEquals(future.get(10, TimeUnit.SECONDS), 42);
+    }
+    assertEquals(calls.get(), 1);
+    assertEquals(singleFlight.executed(), 1);
+    assertEquals(singleFlight.coalesced(), CALLERS - 1);
+    assertEquals(singleFlight.execute("list", calls::incrementAndGet), 2);
+  }
+
+  @Test
+  void shouldShareTheExceptionWithEveryWaitingCaller() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<Future<Integer>> futures =
+        submitAll(
+            () ->
+                singleFlight.execute(
+                    "list",
+                    () -> {
+                      await(release);
+                      throw new IllegalStateException("boom");
+                    }));
+    waitUntilCoalesced();
+    release.countDown();
+
+    for (Future<Integer> future : futures) {
+      ExecutionException thrown =
+          assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+      assertTrue(thrown.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  private List<Future<Integer>> submitAll(Callable<Integer> call) {
+    ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+    List<Future<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      futures.add(executor.submit(call));
+    }
+    executor.shutdown();
+    return futures;
+  }
+
+  private void waitUntilCoalesced() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (singleFlight.coalesced() < CALLERS - 1 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}